@@ -11,31 +11,72 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.List;
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class JpaDemoApplication {
 
     private static final Logger log = LoggerFactory.getLogger(JpaDemoApplication.class);
 
     public static void main(String[] args) {
-        SpringApplication.run(JpaDemoApplication.class, args);
+        SpringApplication application = new SpringApplication(JpaDemoApplication.class);
+        // keeps the startup steps for /actuator/startup and StartupTimelineReporter
+        application.setApplicationStartup(new BufferingApplicationStartup(4096));
+        application.run(args);
     }
 
 
     @Bean
+    @ConditionalOnProperty(name = "jpa-demo.startup.defer-demo", havingValue = "false", matchIfMissing = true)
     public CommandLineRunner demo(
         CustomerRepository customers,
         EntityManager entityManager,
         ClientRepository clientRepository
     ) {
-        FlushModeType flushMode = entityManager.getFlushMode();
-        log.info("Current Flush Mode: {}", flushMode);
+        return demoTask(customers, entityManager, clientRepository);
+    }
+
+    /**
+     * Runs the demo in the background once the application is ready, so it does not delay the first request.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "jpa-demo.startup.defer-demo", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> deferredDemo(
+        CustomerRepository customers,
+        EntityManager entityManager,
+        ClientRepository clientRepository,
+        AsyncTaskExecutor applicationTaskExecutor
+    ) {
+        CommandLineRunner task = demoTask(customers, entityManager, clientRepository);
+        return event -> applicationTaskExecutor.execute(() -> {
+            try {
+                task.run(event.getArgs());
+            } catch (Exception e) {
+                log.warn("Deferred demo failed", e);
+            }
+        });
+    }
+
+    private static CommandLineRunner demoTask(
+        CustomerRepository customers,
+        EntityManager entityManager,
+        ClientRepository clientRepository
+    ) {
         return (args) -> {
+            FlushModeType flushMode = entityManager.getFlushMode();
+            log.info("Current Flush Mode: {}", flushMode);
+
             Runnable task1 = () -> {
                 Customer customer = new Customer("first", "last");
                 customers.save(customer);
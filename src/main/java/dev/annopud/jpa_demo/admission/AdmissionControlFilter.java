@@ -0,0 +1,163 @@
+package dev.annopud.jpa_demo.admission;
+
+import dev.annopud.jpa_demo.metrics.RequestSessionMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sheds load per endpoint (controller method) under {@code /customers}, {@code /mypath} and {@code /tx-demo} with
+ * 503 and {@code Retry-After} once the endpoint's {@link AimdLimit} is reached, instead of letting requests queue on
+ * Tomcat threads and pool connections while the database is slow. The limit adapts to the DB time recorded for
+ * each request by {@link RequestSessionMetrics}; endpoints are kept apart so that a cheap lookup is not throttled
+ * because an expensive report on the same path prefix made the database look slow.
+ * <p>
+ * The endpoint is resolved through the MVC handler mapping; requests no controller method handles pass unlimited.
+ * Limits, in-flight counts and rejections are published as {@code http.admission.*} meters tagged by endpoint.
+ * <p>
+ * Off unless {@code jpa-demo.admission.enabled=true}: {@link AimdLimit} has not been shown to hold peak throughput
+ * under a sustained database slowdown, so measure with the load harness before turning it on.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "jpa-demo.admission.enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    private static final String[] GROUPS = {"/customers", "/mypath", "/tx-demo"};
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMapping;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final String retryAfterSeconds;
+
+    public AdmissionControlFilter(
+        MeterRegistry meterRegistry,
+        @Qualifier("requestMappingHandlerMapping") ObjectProvider<RequestMappingHandlerMapping> handlerMapping,
+        @Value("${jpa-demo.admission.initial-limit:20}") int initialLimit,
+        @Value("${jpa-demo.admission.min-limit:2}") int minLimit,
+        @Value("${jpa-demo.admission.max-limit:200}") int maxLimit,
+        @Value("${jpa-demo.admission.latency-tolerance:2.0}") double tolerance,
+        @Value("${jpa-demo.admission.backoff-ratio:0.9}") double backoffRatio,
+        @Value("${jpa-demo.admission.retry-after-seconds:1}") int retryAfterSeconds
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.handlerMapping = handlerMapping;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        String name = isLimited(request.getRequestURI()) ? endpointOf(request) : null;
+        if (name == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(name, this::register);
+        if (!endpoint.limit().tryAcquire()) {
+            endpoint.rejections().increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            endpoint.limit().release(dbNanos(request));
+        }
+    }
+
+    private Endpoint register(String name) {
+        AimdLimit limit = new AimdLimit(initialLimit, minLimit, maxLimit, tolerance, backoffRatio);
+        Gauge.builder("http.admission.limit", limit, AimdLimit::getLimit)
+            .tag("endpoint", name)
+            .register(meterRegistry);
+        Gauge.builder("http.admission.inflight", limit, AimdLimit::getInFlight)
+            .tag("endpoint", name)
+            .register(meterRegistry);
+        return new Endpoint(limit, meterRegistry.counter("http.admission.rejected", "endpoint", name));
+    }
+
+    /**
+     * {@code Controller#method} of the handler the request maps to, or {@code null} if there is none.
+     */
+    private String endpointOf(HttpServletRequest request) {
+        RequestMappingHandlerMapping mapping = handlerMapping.getIfAvailable();
+        if (mapping == null) {
+            return null;
+        }
+        boolean parsed = ServletRequestPathUtils.hasParsedRequestPath(request);
+        try {
+            if (!parsed) {
+                ServletRequestPathUtils.parseAndCache(request);
+            }
+            HandlerExecutionChain handler = mapping.getHandler(request);
+            return handler != null && handler.getHandler() instanceof HandlerMethod method
+                ? method.getBeanType().getSimpleName() + "#" + method.getMethod().getName()
+                : null;
+        } catch (Exception e) {
+            log.debug("No handler for {} {}", request.getMethod(), request.getRequestURI(), e);
+            return null;
+        } finally {
+            if (!parsed) {
+                ServletRequestPathUtils.clearParsedRequestPath(request);
+            }
+        }
+    }
+
+    private static long dbNanos(HttpServletRequest request) {
+        if (request.getAttribute(RequestSessionMetrics.REQUEST_ATTRIBUTE) instanceof RequestSessionMetrics metrics
+            && metrics.getStatements() > 0) {
+            return metrics.getJdbcNanos();
+        }
+        return -1;
+    }
+
+    private static boolean isLimited(String uri) {
+        for (String group : GROUPS) {
+            if (uri.startsWith(group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Endpoint(AimdLimit limit, Counter rejections) {
+    }
+}
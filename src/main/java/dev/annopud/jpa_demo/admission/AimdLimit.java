@@ -0,0 +1,91 @@
+package dev.annopud.jpa_demo.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit driven by database latency, additive increase / multiplicative decrease.
+ * <p>
+ * Every sample of the DB time per request feeds two moving averages: a short one for the current latency and a
+ * long one as the baseline. When the short average exceeds {@code tolerance} times the baseline the database is
+ * queueing, and the limit is cut by {@code backoffRatio}. Otherwise, while the limit is actually used (at least
+ * half of it in flight), it grows by {@code 1 / limit}, i.e. by about one per limit's worth of completed requests.
+ * <p>
+ * The baseline follows slow samples too, so neither a cheap first request nor a lasting change in the workload
+ * pins the limit at {@code minLimit}: once the baseline has caught up with the new latency, the limit grows again.
+ */
+public class AimdLimit {
+
+    private static final double SHORT_ALPHA = 0.2;
+    private static final double BASELINE_ALPHA = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile double limit;
+    private double shortNanos;
+    private double baselineNanos;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * Takes a slot, or returns {@code false} if the limit is reached.
+     */
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases the slot taken by {@link #tryAcquire()}; {@code dbNanos} is the request's DB time, or a negative
+     * value when the request did not touch the database.
+     */
+    public void release(long dbNanos) {
+        int current = inFlight.getAndDecrement();
+        if (dbNanos < 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (baselineNanos == 0) {
+                shortNanos = dbNanos;
+                baselineNanos = dbNanos;
+                return;
+            }
+            shortNanos += SHORT_ALPHA * (dbNanos - shortNanos);
+            baselineNanos += BASELINE_ALPHA * (dbNanos - baselineNanos);
+            if (shortNanos > baselineNanos * tolerance) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (current * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    double getBaselineNanos() {
+        return baselineNanos;
+    }
+}
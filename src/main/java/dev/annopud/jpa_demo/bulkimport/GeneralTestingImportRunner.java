@@ -0,0 +1,80 @@
+package dev.annopud.jpa_demo.bulkimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Import command: started with {@code --jpa-demo.import.file=<path>} ({@code -} for stdin), imports the NDJSON
+ * file, writes every rejected record to {@code jpa-demo.import.error-file} (default {@code <file>.errors.ndjson})
+ * and exits with status 0 if all records were imported, 1 otherwise.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.import.file")
+public class GeneralTestingImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneralTestingImportRunner.class);
+
+    private final GeneralTestingImporter importer;
+    private final ObjectWriter errorWriter;
+    private final ConfigurableApplicationContext context;
+    private final String file;
+    private final Path errorFile;
+
+    public GeneralTestingImportRunner(
+        GeneralTestingImporter importer,
+        ObjectMapper objectMapper,
+        ConfigurableApplicationContext context,
+        @Value("${jpa-demo.import.file}") String file,
+        @Value("${jpa-demo.import.error-file:}") String errorFile
+    ) {
+        this.importer = importer;
+        this.errorWriter = objectMapper.writerFor(ImportError.class);
+        this.context = context;
+        this.file = file;
+        this.errorFile = Path.of(!errorFile.isEmpty() ? errorFile
+            : file.equals("-") ? "import.errors.ndjson" : file + ".errors.ndjson");
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int status = 1;
+        try (InputStream in = file.equals("-") ? System.in : Files.newInputStream(Path.of(file));
+             BufferedWriter errors = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8)) {
+            ImportReport report = importer.importNdjson(in, error -> {
+                try {
+                    errors.write(errorWriter.writeValueAsString(error));
+                    errors.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            // the importer has logged the report
+            if (report.failed() > 0) {
+                log.warn("{} records rejected, see {}", report.failed(), errorFile.toAbsolutePath());
+            } else {
+                status = 0;
+            }
+        } catch (Exception e) {
+            log.error("Import of {} failed", file, e);
+        }
+        int exitCode = status;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
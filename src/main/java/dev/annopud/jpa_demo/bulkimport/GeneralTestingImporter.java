@@ -0,0 +1,256 @@
+package dev.annopud.jpa_demo.bulkimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.annopud.jpa_demo.converter.PayloadCodec;
+import dev.annopud.jpa_demo.entity.EmailStatus;
+import dev.annopud.jpa_demo.service.GeneralTestingStatusRollups;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams NDJSON (one {@link ImportRecord} per line) into {@code general_testing}.
+ * <p>
+ * The input is read line by line and each record is validated and converted as soon as it is parsed; only the
+ * current chunk of {@code batch-size} rows is held in memory, so heap use does not grow with the input. Each
+ * chunk is written as one JDBC batch in its own transaction. If the batch fails (a duplicate id, say), the chunk
+ * is retried row by row to find the culprits, and only those are rejected.
+ * <p>
+ * Rejected records go to the error sink as they occur; the returned {@link ImportReport} keeps the first
+ * {@code max-reported-errors} of them. The rows bypass Hibernate, so they are reported to
+ * {@link GeneralTestingStatusRollups} explicitly. Ids are taken from the input, the sequence is not used.
+ */
+@Service
+public class GeneralTestingImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneralTestingImporter.class);
+
+    private static final String INSERT_SQL = """
+        INSERT INTO general_testing (id, type, email_from, email_to, email_cc, email_bcc, email_status, email_date,
+            create_by, create_date, update_by, update_date, email_submit_param, email_error)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private final ObjectReader reader;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GeneralTestingStatusRollups rollups;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public GeneralTestingImporter(
+        ObjectMapper objectMapper,
+        DataSource dataSource,
+        PlatformTransactionManager transactionManager,
+        GeneralTestingStatusRollups rollups,
+        @Value("${jpa-demo.import.batch-size:500}") int batchSize,
+        @Value("${jpa-demo.import.max-reported-errors:100}") int maxReportedErrors
+    ) {
+        this.reader = objectMapper.readerFor(ImportRecord.class);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rollups = rollups;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Imports every line of {@code in} (UTF-8, blank lines skipped). Does not close the stream.
+     */
+    public ImportReport importNdjson(InputStream in, Consumer<ImportError> errorSink) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        Errors errors = new Errors(errorSink, maxReportedErrors);
+        List<Row> chunk = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        long records = 0;
+        long imported = 0;
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            records++;
+            ImportRecord record = null;
+            try {
+                record = reader.readValue(line);
+                chunk.add(toRow(lineNumber, record));
+            } catch (JsonProcessingException e) {
+                errors.add(new ImportError(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage()));
+            } catch (IllegalArgumentException e) {
+                errors.add(new ImportError(lineNumber, record != null ? record.id() : null, e.getMessage()));
+            }
+            if (chunk.size() >= batchSize) {
+                imported += write(chunk, errors);
+                chunk.clear();
+            }
+        }
+        imported += write(chunk, errors);
+
+        ImportReport report = new ImportReport(records, imported, errors.count, Duration.ofNanos(System.nanoTime() - start),
+            errors.first);
+        log.info("general_testing import finished: {}", report);
+        return report;
+    }
+
+    private int write(List<Row> chunk, Errors errors) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                jdbcTemplate.batchUpdate(INSERT_SQL, chunk.stream().map(row -> row.stamped(now)).toList());
+                rollups.rowsInsertedInBulk(chunk.stream().map(Row::rollupKey).toList());
+            });
+            return chunk.size();
+        } catch (DataAccessException e) {
+            log.debug("Import batch of {} rows failed, retrying row by row", chunk.size(), e);
+        }
+        int written = 0;
+        for (Row row : chunk) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update(INSERT_SQL, row.stamped(new Timestamp(System.currentTimeMillis())));
+                    rollups.rowsInsertedInBulk(List.<Object[]>of(row.rollupKey()));
+                });
+                written++;
+            } catch (DataAccessException e) {
+                errors.add(new ImportError(row.line(), (String) row.parameters()[0], e.getMostSpecificCause().getMessage()));
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Validates {@code record} against the {@code general_testing} columns; {@link IllegalArgumentException}
+     * names the first offending field. The timestamps are left to {@link Row#stamped}.
+     */
+    static Row toRow(long line, ImportRecord record) {
+        String id = text("id", record.id(), 32, true);
+        if (record.type() == null) {
+            throw new IllegalArgumentException("type is required");
+        }
+        EmailStatus status = record.emailStatus() != null ? EmailStatus.fromCode(record.emailStatus()) : null;
+        Timestamp emailDate = timestamp("emailDate", record.emailDate());
+        Timestamp createDate = timestamp("createDate", record.createDate());
+        Object[] parameters = {
+            id,
+            record.type(),
+            text("emailFrom", record.emailFrom(), 255, true),
+            text("emailTo", record.emailTo(), 255, true),
+            text("emailCc", record.emailCc(), 255, false),
+            text("emailBcc", record.emailBcc(), 255, false),
+            status != null ? status.getCode() : null,
+            emailDate,
+            text("createBy", record.createBy(), 6, true),
+            createDate,
+            text("updateBy", record.updateBy(), 6, false),
+            null,
+            PayloadCodec.encode(record.emailSubmitParam()),
+            record.emailError()
+        };
+        return new Row(line, parameters, new Object[]{status, record.type(), emailDate});
+    }
+
+    private static String text(String field, String value, int maxLength, boolean required) {
+        if (value == null || value.isEmpty()) {
+            if (required) {
+                throw new IllegalArgumentException(field + " is required");
+            }
+            return null;
+        }
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+        return value;
+    }
+
+    /**
+     * Epoch milliseconds, an ISO-8601 date-time with offset (as {@code GET /mypath} writes it) or a local one.
+     */
+    private static Timestamp timestamp(String field, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            if (value.chars().allMatch(Character::isDigit)) {
+                return new Timestamp(Long.parseLong(value));
+            }
+            return Timestamp.from(OffsetDateTime.parse(value).toInstant());
+        } catch (NumberFormatException | DateTimeParseException e) {
+            try {
+                return Timestamp.valueOf(LocalDateTime.parse(value));
+            } catch (DateTimeParseException notLocal) {
+                throw new IllegalArgumentException(field + " is not a date [" + value + "]");
+            }
+        }
+    }
+
+    /**
+     * A converted record: the input line, the {@link #INSERT_SQL} parameters and the status rollup key.
+     */
+    record Row(long line, Object[] parameters, Object[] rollupKey) {
+
+        private static final int CREATE_DATE = 9;
+        private static final int UPDATE_DATE = 11;
+
+        /**
+         * The parameters with {@code update_date} (and a missing {@code create_date}) set to {@code now}. Called in
+         * the transaction that writes the row, so that the change feed's settle-time covers the commit rather than
+         * however long the batch took to fill.
+         */
+        Object[] stamped(Timestamp now) {
+            Object[] stamped = parameters.clone();
+            if (stamped[CREATE_DATE] == null) {
+                stamped[CREATE_DATE] = now;
+            }
+            stamped[UPDATE_DATE] = now;
+            return stamped;
+        }
+    }
+
+    private static final class Errors {
+
+        private final Consumer<ImportError> sink;
+        private final int maxKept;
+        private final List<ImportError> first = new ArrayList<>();
+        private long count;
+
+        Errors(Consumer<ImportError> sink, int maxKept) {
+            this.sink = sink;
+            this.maxKept = maxKept;
+        }
+
+        void add(ImportError error) {
+            count++;
+            if (first.size() < maxKept) {
+                first.add(error);
+            }
+            sink.accept(error);
+        }
+    }
+}
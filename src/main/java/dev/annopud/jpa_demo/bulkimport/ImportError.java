@@ -0,0 +1,7 @@
+package dev.annopud.jpa_demo.bulkimport;
+
+/**
+ * A rejected input line: its 1-based number, the record id if it could be read, and why.
+ */
+public record ImportError(long line, String id, String message) {
+}
@@ -0,0 +1,27 @@
+package dev.annopud.jpa_demo.bulkimport;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One NDJSON line as sent by clients, in the field names of the {@code GeneralTesting} JSON representation, so
+ * the output of {@code GET /mypath} can be imported again. Nothing is converted yet: {@code emailStatus} is the
+ * code, dates are ISO-8601 strings or epoch milliseconds and {@code emailSubmitParam} is base64.
+ * {@code updateDate} and unknown fields are ignored.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ImportRecord(
+    String id,
+    Integer type,
+    String emailFrom,
+    String emailTo,
+    String emailCc,
+    String emailBcc,
+    String emailStatus,
+    String emailDate,
+    String createBy,
+    String createDate,
+    String updateBy,
+    byte[] emailSubmitParam,
+    String emailError
+) {
+}
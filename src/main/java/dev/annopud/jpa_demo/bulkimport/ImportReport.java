@@ -0,0 +1,24 @@
+package dev.annopud.jpa_demo.bulkimport;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of one import: records read, imported and rejected, wall time, and the first rejected records (at most
+ * {@code jpa-demo.import.max-reported-errors}; the error sink receives all of them).
+ */
+public record ImportReport(long records, long imported, long failed, Duration elapsed, List<ImportError> errors) {
+
+    @JsonProperty
+    public double rowsPerSecond() {
+        return imported / (Math.max(elapsed.toNanos(), 1) / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return "%d records, %d imported, %d failed in %d ms (%.0f rows/s)".formatted(
+            records, imported, failed, elapsed.toMillis(), rowsPerSecond());
+    }
+}
@@ -0,0 +1,29 @@
+package dev.annopud.jpa_demo.config;
+
+import dev.annopud.jpa_demo.flush.FlushStatistics;
+import dev.annopud.jpa_demo.jfr.JfrFlushListeners;
+import dev.annopud.jpa_demo.metrics.LoadMetricsListener;
+import dev.annopud.jpa_demo.service.CustomerNameIndex;
+import dev.annopud.jpa_demo.service.GeneralTestingStatusRollups;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Keeps the beans that register Hibernate event listeners eager under {@code spring.main.lazy-initialization}.
+ * They register themselves on creation and are not always injected anywhere, so created lazily their listeners
+ * would silently never run.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter hibernateListenerRegistrations() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+            FlushStatistics.class,
+            LoadMetricsListener.class,
+            JfrFlushListeners.class,
+            CustomerNameIndex.class,
+            GeneralTestingStatusRollups.class);
+    }
+}
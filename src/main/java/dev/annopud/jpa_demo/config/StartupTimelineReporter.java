@@ -0,0 +1,55 @@
+package dev.annopud.jpa_demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+/**
+ * Logs time to ready and the slowest startup steps (bean instantiation, which includes building the Hibernate
+ * metamodel for {@code entityManagerFactory} and running Flyway for {@code flywayInitializer}).
+ * <p>
+ * The full timeline is served by {@code /actuator/startup}. Only active when the application was started with a
+ * {@link BufferingApplicationStartup}, as {@code JpaDemoApplication.main} does.
+ */
+@Component
+public class StartupTimelineReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimelineReporter.class);
+
+    private static final int SLOWEST_STEPS = 10;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("Application ready in {} ms", event.getTimeTaken().toMillis());
+
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (!(startup instanceof BufferingApplicationStartup buffering)) {
+            return;
+        }
+        List<StartupTimeline.TimelineEvent> slowest = buffering.getBufferedTimeline().getEvents().stream()
+            .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+            .limit(SLOWEST_STEPS)
+            .toList();
+        for (StartupTimeline.TimelineEvent step : slowest) {
+            log.info("  {} ms  {} {}", step.getDuration().toMillis(), step.getStartupStep().getName(),
+                describe(step.getStartupStep()));
+        }
+    }
+
+    private static String describe(StartupStep step) {
+        return StreamSupport.stream(step.getTags().spliterator(), false)
+            .map(tag -> tag.getKey() + "=" + tag.getValue())
+            .toList()
+            .toString();
+    }
+}
@@ -0,0 +1,18 @@
+package dev.annopud.jpa_demo.config;
+
+import dev.annopud.jpa_demo.flush.FlushModeAspect;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+/**
+ * Replaces Spring Boot's transaction management configuration only to give the transaction advisor an explicit
+ * order: one step ahead of the lowest precedence, so that {@link FlushModeAspect} runs inside the transactions it
+ * opens.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableTransactionManagement(proxyTargetClass = true, order = TransactionConfig.ORDER)
+public class TransactionConfig {
+
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+}
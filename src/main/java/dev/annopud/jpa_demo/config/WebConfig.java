@@ -0,0 +1,21 @@
+package dev.annopud.jpa_demo.config;
+
+import dev.annopud.jpa_demo.metrics.SessionMetricsInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final SessionMetricsInterceptor sessionMetricsInterceptor;
+
+    public WebConfig(SessionMetricsInterceptor sessionMetricsInterceptor) {
+        this.sessionMetricsInterceptor = sessionMetricsInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sessionMetricsInterceptor);
+    }
+}
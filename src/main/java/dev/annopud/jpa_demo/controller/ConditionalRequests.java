@@ -0,0 +1,85 @@
+package dev.annopud.jpa_demo.controller;
+
+import dev.annopud.jpa_demo.service.ResourceVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Conditional reads: answers 304 when the client's {@code If-None-Match} (or, without it,
+ * {@code If-Modified-Since}) still matches the resource version, before the body is queried or serialised.
+ * <p>
+ * Used for {@code POST} reads too, so this does not go through {@code WebRequest.checkNotModified}, which answers
+ * 412 to a matching {@code If-None-Match} on non-GET methods.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    static <T> ResponseEntity<T> respond(HttpServletRequest request, ResourceVersion version, Supplier<T> body) {
+        return respond(request, version, body, loaded -> Optional.of(version));
+    }
+
+    /**
+     * For a body that is not read together with {@code current}: a 304 is decided on {@code current}, a 200
+     * carries the validators of the body it returns, so a client is never given an older body under a newer tag.
+     */
+    static <T> ResponseEntity<T> respond(HttpServletRequest request, ResourceVersion current, Supplier<T> body,
+                                         Function<T, Optional<ResourceVersion>> versionOf) {
+        if (notModified(request, etag(current), current.lastModified())) {
+            return validators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), current).build();
+        }
+        T loaded = body.get();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        return versionOf.apply(loaded)
+            .map(version -> validators(builder, version))
+            .orElse(builder)
+            .body(loaded);
+    }
+
+    private static ResponseEntity.BodyBuilder validators(ResponseEntity.BodyBuilder builder, ResourceVersion version) {
+        builder.eTag(etag(version)).cacheControl(CacheControl.noCache());
+        if (version.lastModified() > 0) {
+            builder.lastModified(version.lastModified());
+        }
+        return builder;
+    }
+
+    private static String etag(ResourceVersion version) {
+        return "W/\"" + version.tag() + "\"";
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || weakTag(tag).equals(weakTag(etag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (lastModified <= 0) {
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            // HTTP dates have second precision
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String weakTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -1,13 +1,22 @@
 package dev.annopud.jpa_demo.controller;
 
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.service.BatchFinder;
+import dev.annopud.jpa_demo.service.CustomerNameIndex;
 import dev.annopud.jpa_demo.service.CustomerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/customers")
 public class CustomerController {
@@ -15,9 +24,14 @@ public class CustomerController {
     static final Logger log = LoggerFactory.getLogger(CustomerController.class);
 
     private final CustomerService customerService;
+    private final BatchFinder batchFinder;
+    private final CustomerNameIndex customerNameIndex;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, BatchFinder batchFinder,
+                              CustomerNameIndex customerNameIndex) {
         this.customerService = customerService;
+        this.batchFinder = batchFinder;
+        this.customerNameIndex = customerNameIndex;
     }
 
     @GetMapping("")
@@ -37,4 +51,22 @@ public class CustomerController {
         customerService.transactionalMethod();
         return ResponseEntity.ok("Transactional method executed successfully");
     }
+
+    @GetMapping("/suggest")
+    public List<String> suggest(
+        @RequestParam(name = "prefix") String prefix,
+        @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        return customerNameIndex.suggest(prefix, limit);
+    }
+
+    @PostMapping("/batch")
+    public List<Customer> findBatch(@RequestBody List<Long> ids) {
+        return batchFinder.findCustomers(ids);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
@@ -1,18 +1,32 @@
 package dev.annopud.jpa_demo.controller;
 
+import dev.annopud.jpa_demo.bulkimport.GeneralTestingImporter;
+import dev.annopud.jpa_demo.bulkimport.ImportReport;
 import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.entity.GeneralTestingStatusRollup;
+import dev.annopud.jpa_demo.service.GeneralTestingChangeFeed;
+import dev.annopud.jpa_demo.service.GeneralTestingFieldSet;
 import dev.annopud.jpa_demo.service.GeneralTestingService;
+import dev.annopud.jpa_demo.service.GeneralTestingSparseRow;
+import dev.annopud.jpa_demo.service.GeneralTestingStatusRollups;
+import dev.annopud.jpa_demo.service.ResourceVersion;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -26,24 +40,81 @@ public class GeneralTestingController {
     @Autowired
     private GeneralTestingService generalTestingService;
 
+    @Autowired
+    private GeneralTestingChangeFeed generalTestingChangeFeed;
+
+    @Autowired
+    private GeneralTestingStatusRollups generalTestingStatusRollups;
+
+    @Autowired
+    private GeneralTestingImporter generalTestingImporter;
+
     @DeleteMapping("/{id}")
     public void delete(@PathVariable("id") String id) {
         generalTestingService.delete(id);
     }
 
+    /**
+     * {@code ?fields=id,emailStatus} selects attributes (see {@link GeneralTestingFieldSet}); by default all but
+     * {@code emailSubmitParam} and {@code emailError}, {@code fields=*} for everything.
+     */
     @GetMapping({"", "/"})
-    public List<GeneralTesting> findAll() {
-        return generalTestingService.findAll();
+    public ResponseEntity<List<GeneralTestingSparseRow>> findAll(
+        @RequestParam(name = "fields", required = false) String fields,
+        HttpServletRequest request
+    ) {
+        return findAllFields(fields, request);
+    }
+
+    @GetMapping("/changes")
+    public GeneralTestingChangeFeed.Page changes(
+        @RequestParam(name = "since", required = false) String since,
+        @RequestParam(name = "limit", defaultValue = "100") int limit
+    ) {
+        return generalTestingChangeFeed.changesSince(since, limit);
+    }
+
+    @GetMapping("/stats")
+    public List<GeneralTestingStatusRollups.StatusCount> stats(
+        @RequestParam(name = "from", required = false) LocalDate from,
+        @RequestParam(name = "to", required = false) LocalDate to
+    ) {
+        return generalTestingStatusRollups.stats(
+            from != null ? from : GeneralTestingStatusRollup.Key.NO_DAY,
+            to != null ? to : LocalDate.of(9999, 12, 31));
+    }
+
+    @PostMapping("/stats/rebuild")
+    public int rebuildStats() {
+        return generalTestingStatusRollups.rebuild();
     }
 
     @GetMapping("/{id}")
-    public String findById(@PathVariable("id") String id) {
-        return id;
+    public ResponseEntity<GeneralTesting> findById(@PathVariable("id") String id, HttpServletRequest request) {
+        // the body may come from a single-flight load that started before the validator was read
+        return generalTestingService.validator(id)
+            .map(version -> ConditionalRequests.respond(request, version, () -> generalTestingService.findById(id),
+                generalTestingService::validatorOf))
+            .orElseGet(() -> ResponseEntity.ok(generalTestingService.findById(id)));
     }
 
     @PostMapping
-    public List<GeneralTesting> findAllPost() {
-        return generalTestingService.findAll();
+    public ResponseEntity<List<GeneralTestingSparseRow>> findAllPost(
+        @RequestParam(name = "fields", required = false) String fields,
+        HttpServletRequest request
+    ) {
+        return findAllFields(fields, request);
+    }
+
+    private ResponseEntity<List<GeneralTestingSparseRow>> findAllFields(String fields, HttpServletRequest request) {
+        GeneralTestingFieldSet fieldSet = GeneralTestingFieldSet.parse(fields);
+        ResourceVersion version = generalTestingService.tableValidator().withVariant(fieldSet.variant());
+        return ConditionalRequests.respond(request, version, () -> generalTestingService.findAll(fieldSet));
+    }
+
+    @PostMapping("/batch")
+    public List<GeneralTesting> findBatch(@RequestBody List<String> ids) {
+        return generalTestingService.findAllById(ids);
     }
 
     @PostMapping("/create")
@@ -71,4 +142,19 @@ public class GeneralTestingController {
         return body;
     }
 
+    /**
+     * Bulk insert from an NDJSON body, read as a stream rather than bound with {@code @RequestBody}. Rejected
+     * records are listed in the report, up to {@code jpa-demo.import.max-reported-errors}.
+     */
+    @PostMapping(path = "/import", consumes = {"application/x-ndjson", "application/jsonl", "text/plain"})
+    public ImportReport importNdjson(HttpServletRequest request) throws IOException {
+        return generalTestingImporter.importNdjson(request.getInputStream(), error -> {
+        });
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
 }
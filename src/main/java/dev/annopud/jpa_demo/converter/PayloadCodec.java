@@ -0,0 +1,123 @@
+package dev.annopud.jpa_demo.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Storage format of JSON payload columns such as {@code general_testing.email_submit_param}.
+ * <p>
+ * Compressed values start with the 4-byte header {@code 00 'J' 'Z' version} followed by a deflate stream.
+ * JSON text never starts with a NUL byte, so anything without the header is a legacy uncompressed value and is
+ * returned as is. Values shorter than {@link #MIN_COMPRESS_LENGTH}, or that do not shrink, are stored raw.
+ */
+public final class PayloadCodec {
+
+    static final byte[] HEADER = {0, 'J', 'Z', 1};
+    public static final int MIN_COMPRESS_LENGTH = 128;
+
+    private static final LongAdder rawBytes = new LongAdder();
+    private static final LongAdder storedBytes = new LongAdder();
+    private static final LongAdder encodeNanos = new LongAdder();
+    private static final LongAdder decodeNanos = new LongAdder();
+    private static final LongAdder encodes = new LongAdder();
+    private static final LongAdder decodes = new LongAdder();
+
+    private PayloadCodec() {
+    }
+
+    public static byte[] encode(byte[] raw) {
+        if (raw == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        byte[] stored = raw.length < MIN_COMPRESS_LENGTH ? raw : compress(raw);
+        encodeNanos.add(System.nanoTime() - start);
+        encodes.increment();
+        rawBytes.add(raw.length);
+        storedBytes.add(stored.length);
+        return stored;
+    }
+
+    public static byte[] decode(byte[] stored) {
+        if (!isCompressed(stored)) {
+            return stored;
+        }
+        long start = System.nanoTime();
+        byte[] raw = decompress(stored);
+        decodeNanos.add(System.nanoTime() - start);
+        decodes.increment();
+        return raw;
+    }
+
+    public static boolean isCompressed(byte[] stored) {
+        return stored != null
+            && stored.length >= HEADER.length
+            && Arrays.equals(stored, 0, HEADER.length, HEADER, 0, HEADER.length);
+    }
+
+    private static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + HEADER.length);
+            out.writeBytes(HEADER);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.size() < raw.length ? out.toByteArray() : raw;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] stored) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, HEADER.length, stored.length - HEADER.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed payload");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    public static long getStoredBytes() {
+        return storedBytes.sum();
+    }
+
+    public static long getEncodeNanos() {
+        return encodeNanos.sum();
+    }
+
+    public static long getDecodeNanos() {
+        return decodeNanos.sum();
+    }
+
+    public static long getEncodes() {
+        return encodes.sum();
+    }
+
+    public static long getDecodes() {
+        return decodes.sum();
+    }
+}
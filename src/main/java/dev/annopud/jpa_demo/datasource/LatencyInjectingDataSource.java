@@ -0,0 +1,163 @@
+package dev.annopud.jpa_demo.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Makes an in-memory database behave like one across a network: every round trip (statement execution, batch
+ * execution, commit, rollback) is delayed by a latency drawn from {@link Distribution}, and every row read from
+ * a result set costs {@code perRowCost} on top. Round trips and rows are counted, so tests can assert on them.
+ * <p>
+ * Connection checkout is not delayed: the pool hides it in production as well.
+ */
+public class LatencyInjectingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> STATEMENT_ROUND_TRIPS = Set.of(
+        "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Set<String> CONNECTION_ROUND_TRIPS = Set.of("commit", "rollback");
+
+    private final Distribution distribution;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final long perRowNanos;
+    private final double logNormalSigma;
+
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder injectedNanos = new LongAdder();
+
+    public LatencyInjectingDataSource(DataSource target, Distribution distribution, Duration latency,
+                                      Duration jitter, Duration perRowCost) {
+        super(target);
+        this.distribution = distribution;
+        this.latencyNanos = latency.toNanos();
+        this.jitterNanos = jitter.toNanos();
+        this.perRowNanos = perRowCost.toNanos();
+        this.logNormalSigma = latencyNanos > 0 ? (double) jitterNanos / latencyNanos : 0;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection(), Connection.class);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password), Connection.class);
+    }
+
+    private <T> T wrap(T target, Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(
+            LatencyInjectingDataSource.class.getClassLoader(),
+            new Class<?>[]{type},
+            (proxy, method, args) -> {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                Object result = invoke(target, method, args);
+                afterCall(type, method, result);
+                return wrapResult(result);
+            }));
+    }
+
+    private void afterCall(Class<?> type, Method method, Object result) {
+        String name = method.getName();
+        if (type == Connection.class ? CONNECTION_ROUND_TRIPS.contains(name) : STATEMENT_ROUND_TRIPS.contains(name)) {
+            roundTrips.increment();
+            delay(nextLatency());
+        } else if (type == ResultSet.class && name.equals("next") && Boolean.TRUE.equals(result)) {
+            rows.increment();
+            delay(perRowNanos);
+        }
+    }
+
+    private Object wrapResult(Object result) {
+        // most specific interface first, Hibernate relies on the statement subtype
+        if (result instanceof CallableStatement statement) {
+            return wrap(statement, CallableStatement.class);
+        }
+        if (result instanceof PreparedStatement statement) {
+            return wrap(statement, PreparedStatement.class);
+        }
+        if (result instanceof Statement statement) {
+            return wrap(statement, Statement.class);
+        }
+        if (result instanceof ResultSet resultSet) {
+            return wrap(resultSet, ResultSet.class);
+        }
+        return result;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private long nextLatency() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (distribution) {
+            case FIXED -> latencyNanos;
+            case UNIFORM -> latencyNanos - jitterNanos + random.nextLong(2 * jitterNanos + 1);
+            case LOG_NORMAL -> Math.round(latencyNanos * Math.exp(random.nextGaussian() * logNormalSigma));
+        };
+    }
+
+    private void delay(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        injectedNanos.add(nanos);
+        long deadline = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+
+    public long getRoundTrips() {
+        return roundTrips.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public Duration getInjectedLatency() {
+        return Duration.ofNanos(injectedNanos.sum());
+    }
+
+    public void resetCounters() {
+        roundTrips.reset();
+        rows.reset();
+        injectedNanos.reset();
+    }
+
+    public enum Distribution {
+        /** Always {@code latency}. */
+        FIXED,
+        /** Uniform in {@code latency ± jitter}. */
+        UNIFORM,
+        /** Log-normal with median {@code latency} and sigma {@code jitter / latency}: a long tail like real networks. */
+        LOG_NORMAL
+    }
+}
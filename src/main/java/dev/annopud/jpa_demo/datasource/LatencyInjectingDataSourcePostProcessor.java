@@ -0,0 +1,62 @@
+package dev.annopud.jpa_demo.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the application {@link DataSource} in a {@link LatencyInjectingDataSource} when
+ * {@code jpa-demo.latency.enabled=true}, which the {@code latency} profile sets.
+ * <p>
+ * The settings are bound from the {@link Environment} rather than injected with {@code @Value}: a bean post
+ * processor is created before placeholder resolution is guaranteed, which test slices do not set up.
+ * {@code @DataJpaTest} needs {@code @Import(LatencyInjectingDataSourcePostProcessor.class)} together with
+ * {@code @ActiveProfiles({"h2", "latency"})} and {@code @AutoConfigureTestDatabase(replace = NONE)}.
+ * <p>
+ * Innermost of the {@link DataSource} wrappers, so the others time the injected latency as database time.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.latency.enabled", havingValue = "true")
+public class LatencyInjectingDataSourcePostProcessor implements BeanPostProcessor, EnvironmentAware, Ordered {
+
+    /**
+     * Lowest of the {@link DataSource} wrapper orders. Bean post processors run in ascending order and each wraps
+     * what the previous one returned, so the lowest order ends up innermost.
+     */
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 400;
+
+    private LatencyInjectingDataSource.Distribution distribution = LatencyInjectingDataSource.Distribution.FIXED;
+    private Duration latency = Duration.ofMillis(1);
+    private Duration jitter = Duration.ZERO;
+    private Duration perRowCost = Duration.ZERO;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        Binder binder = Binder.get(environment);
+        binder.bind("jpa-demo.latency.distribution", LatencyInjectingDataSource.Distribution.class)
+            .ifBound(value -> distribution = value);
+        binder.bind("jpa-demo.latency.round-trip", Duration.class).ifBound(value -> latency = value);
+        binder.bind("jpa-demo.latency.jitter", Duration.class).ifBound(value -> jitter = value);
+        binder.bind("jpa-demo.latency.per-row", Duration.class).ifBound(value -> perRowCost = value);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof LatencyInjectingDataSource) {
+            return bean;
+        }
+        return new LatencyInjectingDataSource(dataSource, distribution, latency, jitter, perRowCost);
+    }
+}
@@ -0,0 +1,153 @@
+package dev.annopud.jpa_demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detects a thread asking the pool for a second connection while it still holds one, the pattern behind
+ * {@code REQUIRES_NEW} (the outer transaction keeps its connection checked out). When every pooled connection
+ * is held by such a thread they all wait on each other until the pool's connection timeout.
+ * <p>
+ * A nested acquisition on an exhausted pool (no idle connection, pool at its maximum size) is logged in
+ * {@link Mode#WARN} mode and rejected right away in {@link Mode#FAIL} mode. The pool state is a snapshot, so
+ * this is an early warning rather than a proof of deadlock. Nested acquisitions that end up waiting longer
+ * than {@code slowWait} are logged as well.
+ */
+public class PoolDeadlockDetector extends DelegatingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(PoolDeadlockDetector.class);
+
+    private static final ThreadLocal<AtomicInteger> HELD = ThreadLocal.withInitial(AtomicInteger::new);
+
+    private final Mode mode;
+    private final long slowWaitNanos;
+    private final HikariDataSource hikari;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder nestedAcquisitions = new LongAdder();
+    private final LongAdder nestedOnExhaustedPool = new LongAdder();
+
+    public PoolDeadlockDetector(DataSource target, Mode mode, Duration slowWait) {
+        super(target);
+        this.mode = mode;
+        this.slowWaitNanos = slowWait.toNanos();
+        this.hikari = hikariOf(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(() -> super.getConnection(username, password));
+    }
+
+    private Connection track(ConnectionSupplier supplier) throws SQLException {
+        AtomicInteger held = HELD.get();
+        int alreadyHeld = held.get();
+        acquisitions.increment();
+        if (alreadyHeld > 0) {
+            nestedAcquisitions.increment();
+            checkPool(alreadyHeld);
+        }
+
+        long start = System.nanoTime();
+        Connection connection = supplier.get();
+        long waited = System.nanoTime() - start;
+        if (alreadyHeld > 0 && waited > slowWaitNanos) {
+            log.warn("Thread {} waited {} ms for a connection while holding {} other(s) from the same pool",
+                Thread.currentThread().getName(), TimeUnit.NANOSECONDS.toMillis(waited), alreadyHeld);
+        }
+        held.incrementAndGet();
+        return releaseTracking(connection, held);
+    }
+
+    private void checkPool(int alreadyHeld) throws SQLException {
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (pool == null
+            || pool.getIdleConnections() > 0
+            || pool.getTotalConnections() < hikari.getMaximumPoolSize()) {
+            return;
+        }
+        nestedOnExhaustedPool.increment();
+        String message = ("Thread %s requests a connection while holding %d, and the pool is exhausted "
+            + "(active=%d, waiting=%d, max=%d): possible REQUIRES_NEW pool deadlock").formatted(
+            Thread.currentThread().getName(), alreadyHeld, pool.getActiveConnections(),
+            pool.getThreadsAwaitingConnection(), hikari.getMaximumPoolSize());
+        if (mode == Mode.FAIL) {
+            throw new SQLTransientConnectionException(message);
+        }
+        log.warn(message);
+        log.debug("Nested acquisition site", new Throwable());
+    }
+
+    private static Connection releaseTracking(Connection connection, AtomicInteger held) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+            PoolDeadlockDetector.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                // a proxy is only equal to itself, whatever the pooled connection behind it says
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                    held.decrementAndGet();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+    }
+
+    private static HikariDataSource hikariOf(DataSource target) {
+        try {
+            return target.isWrapperFor(HikariDataSource.class) ? target.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getNestedAcquisitions() {
+        return nestedAcquisitions.sum();
+    }
+
+    public long getNestedOnExhaustedPool() {
+        return nestedOnExhaustedPool.sum();
+    }
+
+    public enum Mode {
+        OFF, WARN, FAIL
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
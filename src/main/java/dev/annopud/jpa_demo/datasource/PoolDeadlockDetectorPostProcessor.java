@@ -0,0 +1,50 @@
+package dev.annopud.jpa_demo.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the application {@link DataSource} in a {@link PoolDeadlockDetector} unless
+ * {@code jpa-demo.pool-deadlock-detector.mode=OFF}.
+ * <p>
+ * Outermost of the {@link DataSource} wrappers, so it sees every checkout the application makes.
+ */
+@Component
+public class PoolDeadlockDetectorPostProcessor implements BeanPostProcessor, Ordered {
+
+    /**
+     * Highest of the wrapper orders, see {@link LatencyInjectingDataSourcePostProcessor#ORDER}.
+     */
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 100;
+
+    private final PoolDeadlockDetector.Mode mode;
+    private final Duration slowWait;
+
+    public PoolDeadlockDetectorPostProcessor(
+        @Value("${jpa-demo.pool-deadlock-detector.mode:WARN}") PoolDeadlockDetector.Mode mode,
+        @Value("${jpa-demo.pool-deadlock-detector.slow-wait:500ms}") Duration slowWait
+    ) {
+        this.mode = mode;
+        this.slowWait = slowWait;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (mode == PoolDeadlockDetector.Mode.OFF
+            || !(bean instanceof DataSource dataSource)
+            || bean instanceof PoolDeadlockDetector) {
+            return bean;
+        }
+        return new PoolDeadlockDetector(dataSource, mode, slowWait);
+    }
+}
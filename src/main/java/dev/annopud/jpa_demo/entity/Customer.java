@@ -12,6 +12,7 @@ import jakarta.persistence.PostUpdate;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreRemove;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +27,8 @@ public class Customer {
     private String firstName;
     @Column
     private String lastName;
+    @Version
+    private Long version;
 
     protected Customer() {
     }
@@ -99,4 +102,8 @@ public class Customer {
     public void setLastName(String lastName) {
         this.lastName = lastName;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
@@ -1,14 +1,19 @@
 package dev.annopud.jpa_demo.entity;
 
+import dev.annopud.jpa_demo.converter.PayloadCodec;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -22,7 +27,10 @@ import java.util.Date;
 //@ToString
 //@SuperBuilder
 @NoArgsConstructor
-@Table(name = "general_testing")
+@Table(name = "general_testing", indexes = {
+    @Index(name = "idx_general_testing_create_date", columnList = "create_date, id"),
+    @Index(name = "idx_general_testing_update_date", columnList = "update_date, id")
+})
 @Slf4j
 public class GeneralTesting {
 
@@ -76,10 +84,60 @@ public class GeneralTesting {
     @Temporal(TemporalType.TIMESTAMP)
     private Date updateDate;
 
+    /**
+     * Stored form, see {@link PayloadCodec}. Hibernate reads and writes this field directly; callers go through
+     * the accessors, which decompress on first access only.
+     */
     @Column(name = "email_submit_param")
     private byte[] emailSubmitParam;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private byte[] decodedFrom;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private byte[] decoded;
+
     @Column(name = "email_error")
     private String emailError;
 
+    public byte[] getEmailSubmitParam() {
+        if (decodedFrom != emailSubmitParam) {
+            decoded = PayloadCodec.decode(emailSubmitParam);
+            decodedFrom = emailSubmitParam;
+        }
+        return decoded;
+    }
+
+    public void setEmailSubmitParam(byte[] emailSubmitParam) {
+        this.emailSubmitParam = PayloadCodec.encode(emailSubmitParam);
+        this.decodedFrom = this.emailSubmitParam;
+        this.decoded = emailSubmitParam;
+    }
+
+    /**
+     * {@code update_date} is set on insert too, so it alone orders every change for the change feed.
+     */
+    @PrePersist
+    void onCreate() {
+        Date now = new Date();
+        if (createDate == null) {
+            createDate = now;
+        }
+        updateDate = now;
+    }
+
+    /**
+     * Moves {@code update_date} forward by at least a millisecond (the column is {@code DATETIME(3)}), so every
+     * update changes the row's validator even when two land within the same clock tick.
+     */
+    @PreUpdate
+    void onUpdate() {
+        long now = System.currentTimeMillis();
+        updateDate = new Date(updateDate != null ? Math.max(now, updateDate.getTime() + 1) : now);
+    }
+
 }
@@ -0,0 +1,77 @@
+package dev.annopud.jpa_demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Rows moved out of {@code general_testing} by the retention job, same columns plus {@code archived_at}.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "general_testing_archive")
+public class GeneralTestingArchive {
+
+    @Id
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "type", nullable = false)
+    private Integer type;
+
+    @Column(name = "email_from", nullable = false)
+    private String emailFrom;
+
+    @Column(name = "email_to", nullable = false)
+    private String emailTo;
+
+    @Column(name = "email_cc")
+    private String emailCc;
+
+    @Column(name = "email_bcc")
+    private String emailBcc;
+
+    @Column(name = "email_status")
+    private EmailStatus emailStatus;
+
+    @Column(name = "email_date")
+    private Date emailDate;
+
+    @Column(name = "create_by", nullable = false)
+    private String createBy;
+
+    @Column(name = "create_date", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createDate;
+
+    @Column(name = "update_by")
+    private String updateBy;
+
+    @Column(name = "update_date")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updateDate;
+
+    /**
+     * Copied verbatim, so possibly compressed; read it through {@link dev.annopud.jpa_demo.converter.PayloadCodec#decode}.
+     */
+    @Column(name = "email_submit_param")
+    private byte[] emailSubmitParam;
+
+    @Column(name = "email_error")
+    private String emailError;
+
+    @Column(name = "archived_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date archivedAt;
+
+}
@@ -0,0 +1,56 @@
+package dev.annopud.jpa_demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Number of {@code general_testing} rows per email status, type and day of {@code email_date}. Written only by
+ * {@code GeneralTestingStatusRollups}; a missing status is stored as {@code ""} and a missing date as
+ * {@link Key#NO_DAY}, since both are part of the primary key.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@Table(name = "general_testing_status_rollup")
+public class GeneralTestingStatusRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "row_count", nullable = false)
+    private long rowCount;
+
+    public GeneralTestingStatusRollup(Key id, long rowCount) {
+        this.id = id;
+        this.rowCount = rowCount;
+    }
+
+    @Embeddable
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        public static final LocalDate NO_DAY = LocalDate.of(1000, 1, 1);
+
+        @Column(name = "email_status", nullable = false, length = 1)
+        private String emailStatus;
+
+        @Column(name = "type", nullable = false)
+        private Integer type;
+
+        @Column(name = "email_day", nullable = false)
+        private LocalDate emailDay;
+    }
+}
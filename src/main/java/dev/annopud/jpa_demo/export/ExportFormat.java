@@ -0,0 +1,65 @@
+package dev.annopud.jpa_demo.export;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a {@code general_testing} export file.
+ * <pre>
+ * header  (32 bytes): magic "GTX1", int version, long rowCount, long dataEnd, long checksum
+ * records (from offset 32 to dataEnd): int bodyLength, int crc32c(body), body
+ * body:   id, int type, emailFrom, emailTo, emailCc, emailBcc, emailStatus, long emailDate, createBy,
+ *         long createDate, updateBy, long updateDate, bytes emailSubmitParam, emailError
+ * </pre>
+ * Strings are an int length plus UTF-8 bytes and byte arrays an int length plus the bytes, both {@code -1} for
+ * null; timestamps are epoch millis, {@link Long#MIN_VALUE} for null. {@code emailSubmitParam} is in its stored
+ * form, see {@code PayloadCodec}. Records from different partitions are interleaved in blocks, in no particular
+ * order; {@code checksum} is the sum of all record CRCs, so it does not depend on the order either. All values
+ * are big-endian.
+ */
+final class ExportFormat {
+
+    static final int MAGIC = 0x47545831; // "GTX1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_PREFIX = 8;
+    static final long NULL_TIME = Long.MIN_VALUE;
+
+    private ExportFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buffer, long rowCount, long dataEnd, long checksum) {
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(rowCount).putLong(dataEnd).putLong(checksum);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    static void writeBytes(DataOutput out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,29 @@
+package dev.annopud.jpa_demo.export;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of one export: file, rows and bytes written, wall time and per-partition row counts.
+ */
+public record ExportReport(Path file, long rows, long bytes, Duration elapsed, List<Long> rowsPerPartition) {
+
+    public double rowsPerSecond() {
+        return rows / seconds();
+    }
+
+    public double bytesPerSecond() {
+        return bytes / seconds();
+    }
+
+    private double seconds() {
+        return Math.max(elapsed.toNanos(), 1) / 1e9;
+    }
+
+    @Override
+    public String toString() {
+        return "%d rows, %d bytes to %s in %d ms (%.0f rows/s, %.1f MiB/s), rows per partition %s".formatted(
+            rows, bytes, file, elapsed.toMillis(), rowsPerSecond(), bytesPerSecond() / (1024 * 1024), rowsPerPartition);
+    }
+}
@@ -0,0 +1,23 @@
+package dev.annopud.jpa_demo.export;
+
+/**
+ * One {@code general_testing} row as read back from an export file. Times are epoch millis or {@code null};
+ * {@code emailSubmitParam} is in its stored form (decode with {@code PayloadCodec.decode}).
+ */
+public record ExportedRow(
+    String id,
+    int type,
+    String emailFrom,
+    String emailTo,
+    String emailCc,
+    String emailBcc,
+    String emailStatus,
+    Long emailDate,
+    String createBy,
+    Long createDate,
+    String updateBy,
+    Long updateDate,
+    byte[] emailSubmitParam,
+    String emailError
+) {
+}
@@ -0,0 +1,141 @@
+package dev.annopud.jpa_demo.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads and verifies files written by {@link GeneralTestingExporter}: header, record framing, every record CRC,
+ * and the row count and checksum totals. The file is mapped read-only in windows of at most {@code 1 GiB}.
+ * <pre>
+ * java -cp target/classes dev.annopud.jpa_demo.export.GeneralTestingExportReader general_testing.gtx
+ * </pre>
+ */
+public final class GeneralTestingExportReader {
+
+    private static final long WINDOW = 1L << 30;
+
+    private GeneralTestingExportReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: GeneralTestingExportReader <export file>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        Summary summary = verify(Path.of(args[0]));
+        System.out.printf("OK: %d rows, %d bytes, verified in %d ms%n",
+            summary.rows(), summary.bytes(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Checks the whole file; throws {@link IllegalStateException} describing the first problem found.
+     */
+    public static Summary verify(Path file) throws IOException {
+        return read(file, row -> {
+        });
+    }
+
+    /**
+     * Decodes every row into {@code consumer}, verifying as it goes.
+     */
+    public static Summary read(Path file, Consumer<ExportedRow> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < ExportFormat.HEADER_SIZE) {
+                throw new IllegalStateException("File too short for a header: " + size + " bytes");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, ExportFormat.HEADER_SIZE);
+            if (header.getInt() != ExportFormat.MAGIC) {
+                throw new IllegalStateException("Not a general_testing export file");
+            }
+            int version = header.getInt();
+            if (version != ExportFormat.VERSION) {
+                throw new IllegalStateException("Unsupported export version " + version);
+            }
+            long expectedRows = header.getLong();
+            long dataEnd = header.getLong();
+            long expectedChecksum = header.getLong();
+            if (dataEnd != size) {
+                throw new IllegalStateException("Header says " + dataEnd + " bytes, file has " + size);
+            }
+
+            long rows = 0;
+            long checksum = 0;
+            CRC32C crc = new CRC32C();
+            long position = ExportFormat.HEADER_SIZE;
+            while (position < dataEnd) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW, dataEnd - position));
+                int consumed = 0;
+                while (window.remaining() >= ExportFormat.RECORD_PREFIX) {
+                    int start = window.position();
+                    int length = window.getInt();
+                    int expectedCrc = window.getInt();
+                    if (length < 0 || length > dataEnd - position - start - ExportFormat.RECORD_PREFIX) {
+                        throw new IllegalStateException("Bad record length " + length + " at offset " + (position + start));
+                    }
+                    if (length > window.remaining()) {
+                        window.position(start);
+                        break;
+                    }
+                    byte[] body = new byte[length];
+                    window.get(body);
+                    crc.reset();
+                    crc.update(body);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        throw new IllegalStateException("CRC mismatch in record at offset " + (position + start));
+                    }
+                    checksum += Integer.toUnsignedLong(expectedCrc);
+                    consumer.accept(decode(body));
+                    rows++;
+                    consumed = window.position();
+                }
+                if (consumed == 0) {
+                    throw new IllegalStateException("Truncated record at offset " + position);
+                }
+                position += consumed;
+            }
+            if (rows != expectedRows) {
+                throw new IllegalStateException("Header says " + expectedRows + " rows, file has " + rows);
+            }
+            if (checksum != expectedChecksum) {
+                throw new IllegalStateException("Checksum mismatch");
+            }
+            return new Summary(rows, size);
+        }
+    }
+
+    private static ExportedRow decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        return new ExportedRow(
+            ExportFormat.readString(in),
+            in.readInt(),
+            ExportFormat.readString(in),
+            ExportFormat.readString(in),
+            ExportFormat.readString(in),
+            ExportFormat.readString(in),
+            ExportFormat.readString(in),
+            time(in.readLong()),
+            ExportFormat.readString(in),
+            time(in.readLong()),
+            ExportFormat.readString(in),
+            time(in.readLong()),
+            ExportFormat.readBytes(in),
+            ExportFormat.readString(in));
+    }
+
+    private static Long time(long millis) {
+        return millis != ExportFormat.NULL_TIME ? millis : null;
+    }
+
+    public record Summary(long rows, long bytes) {
+    }
+}
@@ -0,0 +1,55 @@
+package dev.annopud.jpa_demo.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Export command: started with {@code --jpa-demo.export.file=<path>}, exports {@code general_testing}, verifies
+ * the file, logs the report and exits with status 0 (or 1 on failure).
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.export.file")
+public class GeneralTestingExportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneralTestingExportRunner.class);
+
+    private final GeneralTestingExporter exporter;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+
+    public GeneralTestingExportRunner(
+        GeneralTestingExporter exporter,
+        ConfigurableApplicationContext context,
+        @Value("${jpa-demo.export.file}") Path file
+    ) {
+        this.exporter = exporter;
+        this.context = context;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int status = 0;
+        try {
+            exporter.export(file);
+            long start = System.nanoTime();
+            GeneralTestingExportReader.Summary summary = GeneralTestingExportReader.verify(file);
+            log.info("Export verified in {} ms: {} rows, {} bytes",
+                (System.nanoTime() - start) / 1_000_000, summary.rows(), summary.bytes());
+        } catch (Exception e) {
+            log.error("Export to {} failed", file, e);
+            status = 1;
+        }
+        int exitCode = status;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
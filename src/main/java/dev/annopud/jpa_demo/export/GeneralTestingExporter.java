@@ -0,0 +1,292 @@
+package dev.annopud.jpa_demo.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Dumps {@code general_testing} into an {@link ExportFormat} file without going through JPA or Jackson.
+ * <p>
+ * The table is split into {@code partitions} primary-key ranges of about equal row count. Each range is scanned
+ * on its own virtual thread with its own read-only connection, so at most {@code partitions} pooled connections
+ * are taken. Workers encode rows into a private block of {@code block-size} bytes; a full block reserves the next
+ * free region of the file with one atomic add and is copied into a memory mapping of just that region. Each range
+ * reads its own snapshot, so rows changed during the export may appear in their old or new state.
+ * <p>
+ * Ranges are read {@code fetch-size} rows at a time. MySQL Connector/J ignores the fetch size and buffers the whole
+ * result set unless the connection has {@code useCursorFetch=true}, which the datasource URL sets; only statements
+ * with a fetch size (this one and the name index streams) use a server-side cursor.
+ */
+@Service
+public class GeneralTestingExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneralTestingExporter.class);
+
+    private static final String COLUMNS = """
+        id, type, email_from, email_to, email_cc, email_bcc, email_status, email_date, create_by, create_date,
+        update_by, update_date, email_submit_param, email_error""";
+
+    private final DataSource dataSource;
+    private final int partitions;
+    private final int fetchSize;
+    private final int blockSize;
+
+    public GeneralTestingExporter(
+        DataSource dataSource,
+        @Value("${jpa-demo.export.partitions:4}") int partitions,
+        @Value("${jpa-demo.export.fetch-size:1000}") int fetchSize,
+        @Value("${jpa-demo.export.block-size:4194304}") int blockSize
+    ) {
+        this.dataSource = dataSource;
+        this.partitions = partitions;
+        this.fetchSize = fetchSize;
+        this.blockSize = blockSize;
+    }
+
+    public ExportReport export(Path target) throws IOException, SQLException, InterruptedException {
+        long start = System.nanoTime();
+        List<String> bounds = partitionBounds();
+        AtomicLong nextOffset = new AtomicLong(ExportFormat.HEADER_SIZE);
+        AtomicLong checksum = new AtomicLong();
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<Future<Long>> results = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i + 1 < bounds.size(); i++) {
+                    String from = bounds.get(i);
+                    String to = bounds.get(i + 1);
+                    results.add(executor.submit(() -> exportRange(from, to, channel, nextOffset, checksum)));
+                }
+            }
+            List<Long> rowsPerPartition = new ArrayList<>(results.size());
+            for (Future<Long> result : results) {
+                rowsPerPartition.add(await(result));
+            }
+            long rows = rowsPerPartition.stream().mapToLong(Long::longValue).sum();
+            long dataEnd = nextOffset.get();
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, ExportFormat.HEADER_SIZE);
+            ExportFormat.writeHeader(header, rows, dataEnd, checksum.get());
+            header.force();
+            channel.truncate(dataEnd);
+
+            ExportReport report = new ExportReport(target, rows, dataEnd, Duration.ofNanos(System.nanoTime() - start),
+                rowsPerPartition);
+            log.info("general_testing export finished: {}", report);
+            return report;
+        }
+    }
+
+    /**
+     * {@code partitions + 1} bounds, the first and last {@code null} (unbounded), the others ids at evenly spaced
+     * offsets of the primary key index.
+     */
+    private List<String> partitionBounds() throws SQLException {
+        List<String> bounds = new ArrayList<>();
+        bounds.add(null);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            long rows;
+            try (PreparedStatement count = connection.prepareStatement("SELECT COUNT(*) FROM general_testing");
+                 ResultSet rs = count.executeQuery()) {
+                rs.next();
+                rows = rs.getLong(1);
+            }
+            try (PreparedStatement at = connection.prepareStatement(
+                "SELECT id FROM general_testing ORDER BY id LIMIT 1 OFFSET ?")) {
+                for (int i = 1; i < partitions && rows >= partitions; i++) {
+                    at.setLong(1, rows * i / partitions);
+                    try (ResultSet rs = at.executeQuery()) {
+                        if (rs.next() && !rs.getString(1).equals(bounds.getLast())) {
+                            bounds.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        }
+        bounds.add(null);
+        return bounds;
+    }
+
+    private long exportRange(String from, String to, FileChannel channel, AtomicLong nextOffset, AtomicLong checksum)
+        throws SQLException, IOException {
+        String sql = "SELECT " + COLUMNS + " FROM general_testing WHERE 1 = 1"
+            + (from != null ? " AND id >= ?" : "")
+            + (to != null ? " AND id < ?" : "");
+        long rows = 0;
+        long crcSum = 0;
+        try (Connection connection = dataSource.getConnection();
+             BlockWriter writer = new BlockWriter(channel, nextOffset, blockSize)) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int parameter = 1;
+                if (from != null) {
+                    statement.setString(parameter++, from);
+                }
+                if (to != null) {
+                    statement.setString(parameter, to);
+                }
+                statement.setFetchSize(fetchSize);
+                RecordEncoder encoder = new RecordEncoder();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        crcSum += writer.write(encoder.encode(rs), encoder.length());
+                        rows++;
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        checksum.addAndGet(crcSum);
+        log.debug("Exported range [{}, {}): {} rows", from, to, rows);
+        return rows;
+    }
+
+    private static long await(Future<Long> result) throws IOException, SQLException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case IOException io -> throw io;
+                case SQLException sql -> throw sql;
+                case RuntimeException runtime -> throw runtime;
+                default -> throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Encodes the current row into a reused buffer.
+     */
+    private static final class RecordEncoder {
+
+        private final ExposedBuffer buffer = new ExposedBuffer();
+        private final DataOutputStream out = new DataOutputStream(buffer);
+
+        byte[] encode(ResultSet rs) throws SQLException, IOException {
+            buffer.reset();
+            ExportFormat.writeString(out, rs.getString(1));
+            out.writeInt(rs.getInt(2));
+            ExportFormat.writeString(out, rs.getString(3));
+            ExportFormat.writeString(out, rs.getString(4));
+            ExportFormat.writeString(out, rs.getString(5));
+            ExportFormat.writeString(out, rs.getString(6));
+            ExportFormat.writeString(out, rs.getString(7));
+            out.writeLong(millis(rs.getTimestamp(8)));
+            ExportFormat.writeString(out, rs.getString(9));
+            out.writeLong(millis(rs.getTimestamp(10)));
+            ExportFormat.writeString(out, rs.getString(11));
+            out.writeLong(millis(rs.getTimestamp(12)));
+            ExportFormat.writeBytes(out, rs.getBytes(13));
+            ExportFormat.writeString(out, rs.getString(14));
+            return buffer.array();
+        }
+
+        int length() {
+            return buffer.size();
+        }
+
+        private static long millis(Timestamp timestamp) {
+            return timestamp != null ? timestamp.getTime() : ExportFormat.NULL_TIME;
+        }
+    }
+
+    private static final class ExposedBuffer extends ByteArrayOutputStream {
+        ExposedBuffer() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /**
+     * Collects records in a heap block and copies full blocks into freshly reserved, mapped file regions.
+     */
+    private static final class BlockWriter implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final AtomicLong nextOffset;
+        private final ByteBuffer block;
+        private final CRC32C crc = new CRC32C();
+
+        BlockWriter(FileChannel channel, AtomicLong nextOffset, int blockSize) {
+            this.channel = channel;
+            this.nextOffset = nextOffset;
+            this.block = ByteBuffer.allocate(blockSize);
+        }
+
+        /**
+         * Returns the CRC of the record body.
+         */
+        long write(byte[] body, int length) {
+            crc.reset();
+            crc.update(body, 0, length);
+            int value = (int) crc.getValue();
+            int recordSize = ExportFormat.RECORD_PREFIX + length;
+            if (recordSize > block.remaining()) {
+                flush();
+            }
+            if (recordSize > block.capacity()) {
+                ByteBuffer single = ByteBuffer.allocate(recordSize).putInt(length).putInt(value).put(body, 0, length);
+                copyToFile(single.flip());
+            } else {
+                block.putInt(length).putInt(value).put(body, 0, length);
+            }
+            return Integer.toUnsignedLong(value);
+        }
+
+        private void flush() {
+            if (block.position() > 0) {
+                copyToFile(block.flip());
+                block.clear();
+            }
+        }
+
+        private void copyToFile(ByteBuffer data) {
+            long offset = nextOffset.getAndAdd(data.remaining());
+            try {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, offset, data.remaining());
+                region.put(data);
+                region.force();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
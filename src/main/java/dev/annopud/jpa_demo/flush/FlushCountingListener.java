@@ -0,0 +1,49 @@
+package dev.annopud.jpa_demo.flush;
+
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.FlushEntityEvent;
+import org.hibernate.event.spi.FlushEntityEventListener;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+
+/**
+ * Appended after Hibernate's default flush listeners, so the auto flush event already knows whether a flush
+ * was really needed.
+ */
+class FlushCountingListener implements FlushEventListener, AutoFlushEventListener, FlushEntityEventListener {
+
+    private final FlushStatistics statistics;
+
+    FlushCountingListener(FlushStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        FlushStatistics.TransactionCounters counters = statistics.countersFor(event.getSession());
+        if (counters != null) {
+            counters.flushes++;
+        }
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        FlushStatistics.TransactionCounters counters = statistics.countersFor(event.getSession());
+        if (counters != null) {
+            counters.autoFlushChecks++;
+            if (event.isFlushRequired()) {
+                counters.autoFlushes++;
+                counters.flushes++;
+            }
+        }
+    }
+
+    @Override
+    public void onFlushEntity(FlushEntityEvent event) {
+        FlushStatistics.TransactionCounters counters = statistics.countersFor(event.getSession());
+        if (counters != null) {
+            counters.entitiesDirtyChecked++;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.annopud.jpa_demo.flush;
+
+import dev.annopud.jpa_demo.config.TransactionConfig;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+
+/**
+ * Applies {@link WithFlushMode}. Ordered after the transaction advisor (see {@link TransactionConfig}), so it runs
+ * inside the transaction the method's own {@code @Transactional} opens and sets the mode on that transaction's
+ * session; the mode is left in place, it ends with the session after commit. When the method joins a caller's
+ * transaction the previous mode is restored on return. Outside a transaction the method runs unchanged.
+ */
+@Aspect
+@Component
+@Order(FlushModeAspect.ORDER)
+public class FlushModeAspect {
+
+    public static final int ORDER = TransactionConfig.ORDER + 1;
+
+    private static final Logger log = LoggerFactory.getLogger(FlushModeAspect.class);
+
+    private final FlushModeTemplate flushModeTemplate;
+    private final TransactionAttributeSource transactionAttributeSource;
+
+    public FlushModeAspect(FlushModeTemplate flushModeTemplate, TransactionAttributeSource transactionAttributeSource) {
+        this.flushModeTemplate = flushModeTemplate;
+        this.transactionAttributeSource = transactionAttributeSource;
+    }
+
+    @Around("@annotation(dev.annopud.jpa_demo.flush.WithFlushMode) "
+        + "|| @within(dev.annopud.jpa_demo.flush.WithFlushMode)")
+    public Object withFlushMode(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        Method method = AopUtils.getMostSpecificMethod(
+            ((MethodSignature) joinPoint.getSignature()).getMethod(), targetClass);
+
+        WithFlushMode annotation = AnnotatedElementUtils.findMergedAnnotation(method, WithFlushMode.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, WithFlushMode.class);
+        }
+        if (annotation == null) {
+            return joinPoint.proceed();
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            log.debug("No transaction around {}, flush mode {} not applied", method, annotation.value());
+            return joinPoint.proceed();
+        }
+        if (opensTransaction(method, targetClass)) {
+            flushModeTemplate.setForCurrentTransaction(annotation.value());
+            return joinPoint.proceed();
+        }
+        return flushModeTemplate.joinWithFlushMode(annotation.value(), joinPoint::proceed);
+    }
+
+    /**
+     * Whether the current transaction was started by the transaction advisor of this very call.
+     */
+    private boolean opensTransaction(Method method, Class<?> targetClass) {
+        if (transactionAttributeSource.getTransactionAttribute(method, targetClass) == null) {
+            return false;
+        }
+        try {
+            return TransactionAspectSupport.currentTransactionStatus().isNewTransaction();
+        } catch (NoTransactionException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dev.annopud.jpa_demo.flush;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Programmatic counterpart of {@link WithFlushMode}.
+ */
+@Component
+public class FlushModeTemplate {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public FlushModeTemplate(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T execute(FlushMode flushMode, Callback<T> action) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinWithFlushMode(flushMode, action);
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                // the session ends with this transaction, so there is nothing to restore
+                entityManager.unwrap(Session.class).setHibernateFlushMode(flushMode);
+                try {
+                    return action.doWithFlushMode();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new UndeclaredThrowableException(t);
+                }
+            });
+        } catch (UndeclaredThrowableException e) {
+            throw e.getUndeclaredThrowable();
+        }
+    }
+
+    /**
+     * Sets the mode for the rest of the current transaction, for a caller whose transaction ends with the session.
+     */
+    void setForCurrentTransaction(FlushMode flushMode) {
+        entityManager.unwrap(Session.class).setHibernateFlushMode(flushMode);
+    }
+
+    <T> T joinWithFlushMode(FlushMode flushMode, Callback<T> action) throws Throwable {
+        Session session = entityManager.unwrap(Session.class);
+        FlushMode previous = session.getHibernateFlushMode();
+        session.setHibernateFlushMode(flushMode);
+        try {
+            return action.doWithFlushMode();
+        } finally {
+            session.setHibernateFlushMode(previous);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Callback<T> {
+        T doWithFlushMode() throws Throwable;
+    }
+}
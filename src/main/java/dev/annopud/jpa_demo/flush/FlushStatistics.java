@@ -0,0 +1,116 @@
+package dev.annopud.jpa_demo.flush;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flush accounting per Hibernate transaction: flushes, entities dirty-checked during flushes and queries that
+ * triggered an auto flush. Each finished transaction is logged at DEBUG and added to the running totals.
+ */
+@Component
+public class FlushStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(FlushStatistics.class);
+
+    private final Map<EventSource, TransactionCounters> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder entitiesDirtyChecked = new LongAdder();
+    private final LongAdder autoFlushChecks = new LongAdder();
+    private final LongAdder autoFlushes = new LongAdder();
+
+    public FlushStatistics(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        FlushCountingListener listener = new FlushCountingListener(this);
+        registry.appendListeners(EventType.FLUSH, listener);
+        registry.appendListeners(EventType.AUTO_FLUSH, listener);
+        registry.appendListeners(EventType.FLUSH_ENTITY, listener);
+    }
+
+    /**
+     * Counters of the transaction the session is running, or {@code null} outside a transaction.
+     */
+    TransactionCounters countersFor(EventSource session) {
+        if (!session.isTransactionInProgress()) {
+            return null;
+        }
+        TransactionCounters counters = inFlight.get(session);
+        if (counters == null) {
+            counters = new TransactionCounters();
+            inFlight.put(session, counters);
+            session.getActionQueue().registerProcess((success, s) -> complete(session, success));
+        }
+        return counters;
+    }
+
+    private void complete(EventSource session, boolean success) {
+        TransactionCounters counters = inFlight.remove(session);
+        if (counters == null) {
+            return;
+        }
+        transactions.increment();
+        flushes.add(counters.flushes);
+        entitiesDirtyChecked.add(counters.entitiesDirtyChecked);
+        autoFlushChecks.add(counters.autoFlushChecks);
+        autoFlushes.add(counters.autoFlushes);
+        log.debug("Transaction {} with flush mode {}: {}",
+            success ? "committed" : "rolled back", session.getHibernateFlushMode(), counters);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(
+            transactions.sum(),
+            flushes.sum(),
+            entitiesDirtyChecked.sum(),
+            autoFlushChecks.sum(),
+            autoFlushes.sum()
+        );
+    }
+
+    public record Snapshot(
+        long transactions,
+        long flushes,
+        long entitiesDirtyChecked,
+        long autoFlushChecks,
+        long autoFlushes
+    ) {
+        public Snapshot minus(Snapshot other) {
+            return new Snapshot(
+                transactions - other.transactions,
+                flushes - other.flushes,
+                entitiesDirtyChecked - other.entitiesDirtyChecked,
+                autoFlushChecks - other.autoFlushChecks,
+                autoFlushes - other.autoFlushes
+            );
+        }
+    }
+
+    /**
+     * Only touched by the thread running the transaction.
+     */
+    static final class TransactionCounters {
+        int flushes;
+        int entitiesDirtyChecked;
+        int autoFlushChecks;
+        int autoFlushes;
+
+        @Override
+        public String toString() {
+            return "flushes=%d, entitiesDirtyChecked=%d, autoFlushChecks=%d, autoFlushes=%d".formatted(
+                flushes, entitiesDirtyChecked, autoFlushChecks, autoFlushes);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package dev.annopud.jpa_demo.flush;
+
+import org.hibernate.FlushMode;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method (or every public method of the annotated class) with the given Hibernate flush mode.
+ * <p>
+ * Meant for {@code @Transactional} methods: the mode is set on the session of the transaction the method opens and
+ * stays in effect until commit. Outside a transaction the annotation has no effect.
+ * <ul>
+ *     <li>{@link FlushMode#COMMIT} skips the auto flush (and its dirty check) before queries, changes are still
+ *     written on commit.</li>
+ *     <li>{@link FlushMode#MANUAL} never flushes unless {@code flush()} is called explicitly, not even on commit.
+ *     Only use it for read-only work.</li>
+ * </ul>
+ * When the call joins an existing transaction the previous mode is restored on return.
+ *
+ * @see FlushModeAspect
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface WithFlushMode {
+
+    FlushMode value();
+}
@@ -0,0 +1,21 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Time spent in {@code DataSource.getConnection()}, i.e. waiting for the pool.
+ */
+@Name(ConnectionAcquireJfrEvent.NAME)
+@Label("Connection Acquire")
+@Category({"JPA Demo", "Connection"})
+@Description("Wait for a pooled JDBC connection")
+class ConnectionAcquireJfrEvent extends jdk.jfr.Event {
+
+    static final String NAME = "dev.annopud.jpa_demo.ConnectionAcquire";
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,25 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Time spent in {@code Connection.close()} returning the connection to the pool, with how long it was held.
+ */
+@Name(ConnectionReleaseJfrEvent.NAME)
+@Label("Connection Release")
+@Category({"JPA Demo", "Connection"})
+@Description("Return of a JDBC connection to the pool")
+@StackTrace(false)
+class ConnectionReleaseJfrEvent extends jdk.jfr.Event {
+
+    static final String NAME = "dev.annopud.jpa_demo.ConnectionRelease";
+
+    @Label("Held")
+    @Timespan(Timespan.NANOSECONDS)
+    long held;
+}
@@ -0,0 +1,32 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One Hibernate flush, explicit or automatic (before a query).
+ */
+@Name(FlushJfrEvent.NAME)
+@Label("Hibernate Flush")
+@Category({"JPA Demo", "Hibernate"})
+@Description("A Hibernate session flush; auto flushes that found nothing to flush have flushRequired=false")
+@StackTrace(false)
+class FlushJfrEvent extends jdk.jfr.Event {
+
+    static final String NAME = "dev.annopud.jpa_demo.Flush";
+
+    @Label("Auto")
+    boolean auto;
+
+    @Label("Flush Required")
+    boolean flushRequired;
+
+    @Label("Entities")
+    int entities;
+
+    @Label("Collections")
+    int collections;
+}
@@ -0,0 +1,80 @@
+package dev.annopud.jpa_demo.jfr;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Emits {@link ConnectionAcquireJfrEvent} and {@link ConnectionReleaseJfrEvent}. Connections are only proxied
+ * while the release event is enabled, so with no recording running this adds one enabled check per checkout.
+ */
+public class JfrDataSource extends DelegatingDataSource {
+
+    public JfrDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return acquire(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return acquire(() -> super.getConnection(username, password));
+    }
+
+    private static Connection acquire(ConnectionSupplier supplier) throws SQLException {
+        ConnectionAcquireJfrEvent event = new ConnectionAcquireJfrEvent();
+        event.begin();
+        try {
+            Connection connection = supplier.get();
+            event.success = true;
+            return trackRelease(connection);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static Connection trackRelease(Connection connection) {
+        if (!new ConnectionReleaseJfrEvent().isEnabled()) {
+            return connection;
+        }
+        long acquired = System.nanoTime();
+        return (Connection) Proxy.newProxyInstance(
+            JfrDataSource.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                ConnectionReleaseJfrEvent event = null;
+                if (method.getName().equals("close")) {
+                    event = new ConnectionReleaseJfrEvent();
+                    event.held = System.nanoTime() - acquired;
+                    event.begin();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                } finally {
+                    if (event != null) {
+                        event.commit();
+                    }
+                }
+            });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
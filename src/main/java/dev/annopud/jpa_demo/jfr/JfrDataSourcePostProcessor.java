@@ -0,0 +1,36 @@
+package dev.annopud.jpa_demo.jfr;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application {@link DataSource} in a {@link JfrDataSource} unless {@code jpa-demo.jfr.enabled=false}.
+ * <p>
+ * Wraps the latency injection and is wrapped by the observation and the pool deadlock detector.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class JfrDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+    /**
+     * See {@link dev.annopud.jpa_demo.datasource.LatencyInjectingDataSourcePostProcessor#ORDER}.
+     */
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 300;
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof JfrDataSource) {
+            return bean;
+        }
+        return new JfrDataSource(dataSource);
+    }
+}
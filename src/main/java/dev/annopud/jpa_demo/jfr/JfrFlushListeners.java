@@ -0,0 +1,90 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Emits a {@link FlushJfrEvent} per flush: one listener pair is prepended to Hibernate's default flush listeners
+ * to start the event, the other appended to end it once the entity counts are known.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class JfrFlushListeners {
+
+    private static final ThreadLocal<FlushJfrEvent> CURRENT = new ThreadLocal<>();
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public JfrFlushListeners(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        Start start = new Start();
+        End end = new End();
+        registry.prependListeners(EventType.FLUSH, start);
+        registry.prependListeners(EventType.AUTO_FLUSH, start);
+        registry.appendListeners(EventType.FLUSH, end);
+        registry.appendListeners(EventType.AUTO_FLUSH, end);
+    }
+
+    private static void start() {
+        FlushJfrEvent event = new FlushJfrEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            CURRENT.set(event);
+        }
+    }
+
+    private static void end(FlushEvent flush, boolean auto, boolean flushRequired) {
+        FlushJfrEvent event = CURRENT.get();
+        if (event == null) {
+            return;
+        }
+        CURRENT.remove();
+        event.auto = auto;
+        event.flushRequired = flushRequired;
+        event.entities = flush.getNumberOfEntitiesProcessed();
+        event.collections = flush.getNumberOfCollectionsProcessed();
+        event.commit();
+    }
+
+    private static class Start implements FlushEventListener, AutoFlushEventListener {
+
+        @Override
+        public void onFlush(FlushEvent event) {
+            start();
+        }
+
+        @Override
+        public void onAutoFlush(AutoFlushEvent event) {
+            start();
+        }
+    }
+
+    private static class End implements FlushEventListener, AutoFlushEventListener {
+
+        @Override
+        public void onFlush(FlushEvent event) {
+            end(event, false, true);
+        }
+
+        @Override
+        public void onAutoFlush(AutoFlushEvent event) {
+            end(event, true, event.isFlushRequired());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarises a recording made with {@code jfr/jpa-demo.jfc}: count, total and maximum duration of each
+ * application event (transactions split by kind and outcome), and how much GC pause time and virtual-thread
+ * pinning fell inside transactions.
+ * <pre>
+ * java -cp target/classes dev.annopud.jpa_demo.jfr.JfrSummary recording.jfr
+ * </pre>
+ */
+public final class JfrSummary {
+
+    private static final String GC_PAUSE = "jdk.GCPhasePause";
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+
+    private final Map<String, Stat> stats = new TreeMap<>();
+    private final List<RecordedEvent> transactions = new ArrayList<>();
+    private final List<RecordedEvent> gcPauses = new ArrayList<>();
+    private final List<RecordedEvent> pinnings = new ArrayList<>();
+    private long flushedEntities;
+
+    private JfrSummary() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: JfrSummary <recording.jfr>");
+            System.exit(2);
+        }
+        System.out.print(summarise(Path.of(args[0])));
+    }
+
+    public static String summarise(Path recording) throws IOException {
+        JfrSummary summary = new JfrSummary();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                summary.accept(file.readEvent());
+            }
+        }
+        return summary.report();
+    }
+
+    private void accept(RecordedEvent event) {
+        String name = event.getEventType().getName();
+        switch (name) {
+            case TransactionJfrEvent.NAME -> {
+                transactions.add(event);
+                stat("Transaction " + event.getString("kind") + " " + event.getString("outcome")).add(event);
+            }
+            case FlushJfrEvent.NAME -> {
+                flushedEntities += event.getInt("entities");
+                stat(event.getBoolean("auto") ? "Flush (auto)" : "Flush").add(event);
+            }
+            case ConnectionAcquireJfrEvent.NAME -> stat("Connection acquire").add(event);
+            case ConnectionReleaseJfrEvent.NAME -> stat("Connection release").add(event);
+            case TransactionalListenerJfrEvent.NAME -> stat("Listener " + event.getString("listener")).add(event);
+            case GC_PAUSE -> gcPauses.add(event);
+            case PINNED -> pinnings.add(event);
+            default -> {
+            }
+        }
+    }
+
+    private Stat stat(String label) {
+        return stats.computeIfAbsent(label, l -> new Stat());
+    }
+
+    private String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-60s %8s %12s %10s%n", "Event", "Count", "Total ms", "Max ms"));
+        stats.forEach((label, stat) -> out.append(String.format("%-60s %8d %12.1f %10.1f%n",
+            label, stat.count, millis(stat.total), millis(stat.max))));
+        out.append(String.format("%nEntities flushed: %d%n", flushedEntities));
+
+        Duration gcInTransactions = Duration.ZERO;
+        int transactionsHitByGc = 0;
+        for (RecordedEvent transaction : transactions) {
+            Duration overlap = Duration.ZERO;
+            for (RecordedEvent pause : gcPauses) {
+                overlap = overlap.plus(overlap(transaction, pause));
+            }
+            if (!overlap.isZero()) {
+                transactionsHitByGc++;
+                gcInTransactions = gcInTransactions.plus(overlap);
+            }
+        }
+        out.append(String.format("GC pauses: %d, %d transactions overlapped one, %.1f ms of pause inside transactions%n",
+            gcPauses.size(), transactionsHitByGc, millis(gcInTransactions)));
+
+        int pinnedInTransactions = 0;
+        for (RecordedEvent pinned : pinnings) {
+            for (RecordedEvent transaction : transactions) {
+                if (sameThread(pinned, transaction) && !overlap(transaction, pinned).isZero()) {
+                    pinnedInTransactions++;
+                    break;
+                }
+            }
+        }
+        out.append(String.format("Virtual thread pinnings: %d, %d inside a transaction on the same thread%n",
+            pinnings.size(), pinnedInTransactions));
+        return out.toString();
+    }
+
+    private static Duration overlap(RecordedEvent a, RecordedEvent b) {
+        Instant start = max(a.getStartTime(), b.getStartTime());
+        Instant end = min(a.getEndTime(), b.getEndTime());
+        return end.isAfter(start) ? Duration.between(start, end) : Duration.ZERO;
+    }
+
+    private static boolean sameThread(RecordedEvent a, RecordedEvent b) {
+        RecordedThread threadA = a.getThread();
+        RecordedThread threadB = b.getThread();
+        return threadA != null && threadB != null && threadA.getJavaThreadId() == threadB.getJavaThreadId();
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+
+    private static final class Stat {
+        long count;
+        Duration total = Duration.ZERO;
+        Duration max = Duration.ZERO;
+
+        void add(RecordedEvent event) {
+            Duration duration = event.getDuration();
+            count++;
+            total = total.plus(duration);
+            if (duration.compareTo(max) > 0) {
+                max = duration;
+            }
+        }
+    }
+}
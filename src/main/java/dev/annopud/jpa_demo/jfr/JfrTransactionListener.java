@@ -0,0 +1,120 @@
+package dev.annopud.jpa_demo.jfr;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Emits a {@link TransactionJfrEvent} per transaction. Spring Boot registers {@link TransactionExecutionListener}
+ * beans with the auto-configured transaction manager.
+ * <p>
+ * The manager only notifies for new transactions and savepoints, never for methods joining an existing
+ * transaction, and completions come back on the same thread in reverse order, so pending events are kept on a
+ * per-thread stack. Nothing is allocated or pushed while no recording is running.
+ * <p>
+ * The kind comes from the propagation behavior the transaction was begun with, which
+ * {@link JfrTransactionManagerPostProcessor} makes available for the duration of {@code getTransaction}.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class JfrTransactionListener implements TransactionExecutionListener {
+
+    private static final ThreadLocal<Deque<Pending>> PENDING = new ThreadLocal<>();
+
+    static final ThreadLocal<TransactionDefinition> DEFINITION = new ThreadLocal<>();
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        TransactionJfrEvent event = new TransactionJfrEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.name = transaction.getTransactionName();
+        event.readOnly = transaction.isReadOnly();
+        event.kind = kindOf(transaction);
+        event.begin();
+        Deque<Pending> pending = PENDING.get();
+        if (pending == null) {
+            pending = new ArrayDeque<>();
+            PENDING.set(pending);
+        }
+        pending.push(new Pending(transaction, event));
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            end(transaction, "BEGIN_FAILED");
+            return;
+        }
+        Deque<Pending> pending = PENDING.get();
+        if (pending != null && pending.peek().transaction() == transaction
+            && transaction instanceof TransactionStatus status) {
+            pending.peek().event().savepoint = status.hasSavepoint();
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        end(transaction, commitFailure == null ? "COMMIT" : "COMMIT_FAILED");
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        end(transaction, rollbackFailure == null ? "ROLLBACK" : "ROLLBACK_FAILED");
+    }
+
+    private static void end(TransactionExecution transaction, String outcome) {
+        Deque<Pending> pending = PENDING.get();
+        if (pending == null) {
+            return;
+        }
+        TransactionJfrEvent event = pop(pending, transaction);
+        if (event != null) {
+            event.outcome = outcome;
+            event.commit();
+        }
+        if (pending.isEmpty()) {
+            PENDING.remove();
+        }
+    }
+
+    /**
+     * Pops up to and including {@code transaction}; entries above it lost their completion callback.
+     */
+    private static TransactionJfrEvent pop(Deque<Pending> pending, TransactionExecution transaction) {
+        boolean present = false;
+        for (Iterator<Pending> it = pending.iterator(); it.hasNext() && !present; ) {
+            present = it.next().transaction() == transaction;
+        }
+        if (!present) {
+            return null;
+        }
+        Pending top;
+        do {
+            top = pending.pop();
+        } while (top.transaction() != transaction);
+        return top.event();
+    }
+
+    private static String kindOf(TransactionExecution transaction) {
+        if (transaction.isNested()) {
+            return "NESTED";
+        }
+        TransactionDefinition definition = DEFINITION.get();
+        if (definition != null && definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW) {
+            return "REQUIRES_NEW";
+        }
+        return "NEW";
+    }
+
+    private record Pending(TransactionExecution transaction, TransactionJfrEvent event) {
+    }
+}
@@ -0,0 +1,41 @@
+package dev.annopud.jpa_demo.jfr;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+/**
+ * Lets {@link JfrTransactionListener} see the definition a transaction is begun with: the listener callbacks
+ * only get the transaction status, which does not carry the propagation behavior.
+ * <p>
+ * {@code getTransaction} is final in Spring's transaction managers, so the manager is proxied by its interfaces.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class JfrTransactionManagerPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof PlatformTransactionManager)) {
+            return bean;
+        }
+        NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor((MethodInterceptor) invocation -> {
+            TransactionDefinition previous = JfrTransactionListener.DEFINITION.get();
+            JfrTransactionListener.DEFINITION.set((TransactionDefinition) invocation.getArguments()[0]);
+            try {
+                return invocation.proceed();
+            } finally {
+                JfrTransactionListener.DEFINITION.set(previous);
+            }
+        });
+        advisor.setMappedName("getTransaction");
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.addAdvisor(advisor);
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+}
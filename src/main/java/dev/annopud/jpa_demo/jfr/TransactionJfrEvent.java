@@ -0,0 +1,37 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One Spring-managed transaction (or savepoint), from begin to commit or rollback.
+ */
+@Name(TransactionJfrEvent.NAME)
+@Label("Transaction")
+@Category({"JPA Demo", "Transaction"})
+@Description("A transaction or savepoint started by the Spring transaction manager, from begin to completion")
+@StackTrace(false)
+class TransactionJfrEvent extends jdk.jfr.Event {
+
+    static final String NAME = "dev.annopud.jpa_demo.Transaction";
+
+    @Label("Name")
+    String name;
+
+    @Label("Kind")
+    @Description("NEW, REQUIRES_NEW (begun with that propagation) or NESTED (savepoint)")
+    String kind;
+
+    @Label("Savepoint")
+    boolean savepoint;
+
+    @Label("Read Only")
+    boolean readOnly;
+
+    @Label("Outcome")
+    @Description("COMMIT, COMMIT_FAILED, ROLLBACK, ROLLBACK_FAILED or BEGIN_FAILED")
+    String outcome;
+}
@@ -0,0 +1,39 @@
+package dev.annopud.jpa_demo.jfr;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Emits a {@link TransactionalListenerJfrEvent} around {@code @TransactionalEventListener} methods. The
+ * {@code @Async} interceptor is applied before any aspect, so for async listeners the event covers the run on
+ * the executor thread, not the hand-off.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "jpa-demo.jfr.enabled", havingValue = "true", matchIfMissing = true)
+public class TransactionalListenerJfrAspect {
+
+    @Around("@annotation(listener)")
+    public Object record(ProceedingJoinPoint joinPoint, TransactionalEventListener listener) throws Throwable {
+        TransactionalListenerJfrEvent event = new TransactionalListenerJfrEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.listener = joinPoint.getSignature().toShortString();
+        event.phase = listener.phase().name();
+        Object[] args = joinPoint.getArgs();
+        event.eventType = args.length > 0 && args[0] != null ? args[0].getClass().getName() : null;
+        event.begin();
+        try {
+            Object result = joinPoint.proceed();
+            event.success = true;
+            return result;
+        } finally {
+            event.commit();
+        }
+    }
+}
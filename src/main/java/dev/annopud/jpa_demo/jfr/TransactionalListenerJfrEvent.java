@@ -0,0 +1,33 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One invocation of a {@code @TransactionalEventListener} method, on the thread that runs it (the async executor
+ * for {@code @Async} listeners).
+ */
+@Name(TransactionalListenerJfrEvent.NAME)
+@Label("Transactional Event Listener")
+@Category({"JPA Demo", "Transaction"})
+@Description("Dispatch of an application event to a @TransactionalEventListener method")
+@StackTrace(false)
+class TransactionalListenerJfrEvent extends jdk.jfr.Event {
+
+    static final String NAME = "dev.annopud.jpa_demo.TransactionalListener";
+
+    @Label("Listener")
+    String listener;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Success")
+    boolean success;
+}
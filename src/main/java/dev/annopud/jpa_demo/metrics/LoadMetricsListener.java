@@ -0,0 +1,62 @@
+package dev.annopud.jpa_demo.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts entity loads, fetches by id and collection loads for {@link RequestSessionMetrics}; the per-session
+ * {@link SessionMetricsListener} callbacks do not cover them.
+ */
+@Component
+public class LoadMetricsListener implements PostLoadEventListener, LoadEventListener, InitializeCollectionEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public LoadMetricsListener(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, this);
+        registry.appendListeners(EventType.LOAD, this);
+        registry.appendListeners(EventType.INIT_COLLECTION, this);
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            metrics.entityLoads++;
+        }
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            metrics.entityFetches++;
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            metrics.collectionLoads++;
+        }
+    }
+}
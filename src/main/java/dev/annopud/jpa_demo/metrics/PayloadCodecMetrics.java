@@ -0,0 +1,51 @@
+package dev.annopud.jpa_demo.metrics;
+
+import dev.annopud.jpa_demo.converter.PayloadCodec;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the {@link PayloadCodec} counters: bytes before and after encoding (their ratio is the storage
+ * saving) and the CPU time spent compressing and decompressing.
+ */
+@Component
+public class PayloadCodecMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("general_testing.payload.bytes", PayloadCodec.class, c -> PayloadCodec.getRawBytes())
+            .tag("form", "raw")
+            .baseUnit("bytes")
+            .register(registry);
+        FunctionCounter.builder("general_testing.payload.bytes", PayloadCodec.class, c -> PayloadCodec.getStoredBytes())
+            .tag("form", "stored")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("general_testing.payload.compression.ratio", PayloadCodec.class, c -> ratio())
+            .description("Raw bytes per stored byte over all encodes since startup")
+            .register(registry);
+        codecTime(registry, "encode", c -> PayloadCodec.getEncodes(), c -> PayloadCodec.getEncodeNanos());
+        codecTime(registry, "decode", c -> PayloadCodec.getDecodes(), c -> PayloadCodec.getDecodeNanos());
+    }
+
+    private static void codecTime(MeterRegistry registry, String operation,
+                                  ToLongFunction<Class<PayloadCodec>> count,
+                                  ToDoubleFunction<Class<PayloadCodec>> nanos) {
+        FunctionTimer.builder("general_testing.payload.codec", PayloadCodec.class, count, nanos, TimeUnit.NANOSECONDS)
+            .tag("operation", operation)
+            .register(registry);
+    }
+
+    private static double ratio() {
+        long stored = PayloadCodec.getStoredBytes();
+        return stored == 0 ? 1.0 : (double) PayloadCodec.getRawBytes() / stored;
+    }
+}
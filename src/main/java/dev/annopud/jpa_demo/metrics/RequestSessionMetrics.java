@@ -0,0 +1,86 @@
+package dev.annopud.jpa_demo.metrics;
+
+/**
+ * Hibernate work done while serving one HTTP request, summed over every session the request opened.
+ * <p>
+ * Bound to the request thread by {@link SessionMetricsInterceptor}; work on other threads (e.g. {@code @Async}
+ * listeners) is not attributed to the request.
+ */
+public final class RequestSessionMetrics {
+
+    /**
+     * Request attribute holding the finished metrics, for filters that run after the handler.
+     */
+    public static final String REQUEST_ATTRIBUTE = RequestSessionMetrics.class.getName();
+
+    private static final ThreadLocal<RequestSessionMetrics> CURRENT = new ThreadLocal<>();
+
+    long statements;
+    long jdbcNanos;
+    long entityLoads;
+    long entityFetches;
+    long collectionLoads;
+    long flushes;
+    long cacheHits;
+    long cacheMisses;
+
+    static RequestSessionMetrics begin() {
+        RequestSessionMetrics metrics = new RequestSessionMetrics();
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    static RequestSessionMetrics end() {
+        RequestSessionMetrics metrics = CURRENT.get();
+        CURRENT.remove();
+        return metrics;
+    }
+
+    /**
+     * Metrics of the request running on this thread, or {@code null}.
+     */
+    public static RequestSessionMetrics current() {
+        return CURRENT.get();
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    public long getEntityFetches() {
+        return entityFetches;
+    }
+
+    public long getCollectionLoads() {
+        return collectionLoads;
+    }
+
+    public long getFlushes() {
+        return flushes;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Compact form used for the debug response header.
+     */
+    public String toHeaderValue() {
+        return "stmts=%d;jdbcMs=%.3f;loads=%d;fetches=%d;collections=%d;flushes=%d;cacheHits=%d;cacheMisses=%d"
+            .formatted(statements, jdbcNanos / 1_000_000.0, entityLoads, entityFetches, collectionLoads, flushes,
+                cacheHits, cacheMisses);
+    }
+}
@@ -0,0 +1,49 @@
+package dev.annopud.jpa_demo.metrics;
+
+import dev.annopud.jpa_demo.controller.CustomerController;
+import dev.annopud.jpa_demo.controller.GeneralTestingController;
+import dev.annopud.jpa_demo.controller.TransactionDemoController;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds an {@value #HEADER} summary of the request's Hibernate work so far. Debug aid, off by default:
+ * {@code jpa-demo.session-metrics.header-enabled=true}.
+ */
+@ControllerAdvice(assignableTypes = {
+    CustomerController.class,
+    GeneralTestingController.class,
+    TransactionDemoController.class
+})
+@ConditionalOnProperty(name = "jpa-demo.session-metrics.header-enabled", havingValue = "true")
+public class SessionMetricsHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String HEADER = "X-Session-Metrics";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+        Object body,
+        MethodParameter returnType,
+        MediaType selectedContentType,
+        Class<? extends HttpMessageConverter<?>> selectedConverterType,
+        ServerHttpRequest request,
+        ServerHttpResponse response
+    ) {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            response.getHeaders().add(HEADER, metrics.toHeaderValue());
+        }
+        return body;
+    }
+}
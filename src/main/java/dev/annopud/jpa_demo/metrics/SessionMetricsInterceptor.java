@@ -0,0 +1,69 @@
+package dev.annopud.jpa_demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds a {@link RequestSessionMetrics} to each handled request and publishes it to Micrometer, tagged with the
+ * handler ({@code CustomerController.experimentMethod}, ...).
+ */
+@Component
+public class SessionMetricsInterceptor implements HandlerInterceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    public SessionMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            RequestSessionMetrics.begin();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        Object handler,
+        Exception ex
+    ) {
+        RequestSessionMetrics metrics = RequestSessionMetrics.end();
+        if (metrics == null || !(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+        request.setAttribute(RequestSessionMetrics.REQUEST_ATTRIBUTE, metrics);
+        String tag = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+
+        Timer.builder("jpa.request.jdbc")
+            .description("Time spent preparing and executing JDBC statements per request")
+            .tag("handler", tag)
+            .register(meterRegistry)
+            .record(metrics.jdbcNanos, TimeUnit.NANOSECONDS);
+        summary("jpa.request.statements", tag, metrics.statements);
+        summary("jpa.request.entity.loads", tag, metrics.entityLoads);
+        summary("jpa.request.entity.fetches", tag, metrics.entityFetches);
+        summary("jpa.request.collection.loads", tag, metrics.collectionLoads);
+        summary("jpa.request.flushes", tag, metrics.flushes);
+        summary("jpa.request.cache.hits", tag, metrics.cacheHits);
+        summary("jpa.request.cache.misses", tag, metrics.cacheMisses);
+    }
+
+    private void summary(String name, String handler, long value) {
+        DistributionSummary.builder(name)
+            .tag("handler", handler)
+            .register(meterRegistry)
+            .record(value);
+    }
+}
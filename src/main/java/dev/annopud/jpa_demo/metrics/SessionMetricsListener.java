@@ -0,0 +1,78 @@
+package dev.annopud.jpa_demo.metrics;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Attached to every session through {@code hibernate.session.events.auto}. Hibernate creates one instance per
+ * session, so the start timestamps need no synchronisation.
+ * <p>
+ * This replaces {@code hibernate.generate_statistics}: the global statistics are shared, contended counters and
+ * cannot be split per request, while these callbacks cost a thread-local lookup when no request is bound.
+ */
+public class SessionMetricsListener implements SessionEventListener {
+
+    private long prepareStart;
+    private long executeStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        prepareStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            metrics.jdbcNanos += System.nanoTime() - prepareStart;
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            metrics.statements++;
+            metrics.jdbcNanos += System.nanoTime() - executeStart;
+        }
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            metrics.statements++;
+            metrics.jdbcNanos += System.nanoTime() - batchStart;
+        }
+    }
+
+    @Override
+    public void cacheGetEnd(boolean hit) {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            if (hit) {
+                metrics.cacheHits++;
+            } else {
+                metrics.cacheMisses++;
+            }
+        }
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        if (metrics != null) {
+            metrics.flushes++;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package dev.annopud.jpa_demo.observation;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.ObservationView;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds a {@code jpa.jdbc.statement} observation around each statement execution, tagged with {@code db.operation}
+ * and the {@code repository} and {@code method} of the enclosing {@code jpa.repository} observation ({@code none}
+ * outside one), with the normalised SQL as the high-cardinality {@code db.statement}.
+ * <p>
+ * Only statements created while the current trace is sampled are observed; all others run on the driver's own
+ * statement, so the cost outside sampled traces is one sampling check per prepare. Without a tracer every
+ * statement inside an observation is observed.
+ * <p>
+ * A statement slower than {@code slowThreshold} is tagged {@code db.slow} and gets its plan: once its own
+ * observation has stopped, {@code EXPLAIN} of the same SQL and parameters runs on the same connection in a sibling
+ * {@code jpa.jdbc.explain} observation, which carries the result as {@code db.plan}; the plan is also logged. Each
+ * normalised statement is explained at most once per {@code explainInterval}; batches and streaming queries are
+ * not explained.
+ */
+public class ObservedDataSource extends DelegatingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ObservedDataSource.class);
+
+    static final String OBSERVATION = "jpa.jdbc.statement";
+    static final String EXPLAIN_OBSERVATION = "jpa.jdbc.explain";
+
+    private static final Set<String> EXPLAINABLE = Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "REPLACE");
+    private static final int MAX_PLAN_LENGTH = 4000;
+    private static final int MAX_EXPLAINED_STATEMENTS = 1000;
+
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+    private final ObjectProvider<Tracer> tracer;
+    private final long slowThresholdNanos;
+    private final long explainIntervalNanos;
+    private final Map<String, Long> lastExplained = new ConcurrentHashMap<>();
+
+    public ObservedDataSource(
+        DataSource target,
+        ObjectProvider<ObservationRegistry> observationRegistry,
+        ObjectProvider<Tracer> tracer,
+        Duration slowThreshold,
+        Duration explainInterval
+    ) {
+        super(target);
+        this.observationRegistry = observationRegistry;
+        this.tracer = tracer;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.explainIntervalNanos = explainInterval.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return observe(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return observe(super.getConnection(username, password));
+    }
+
+    private Connection observe(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            ObservedDataSource.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if (isIdentityMethod(method)) {
+                    return identity(proxy, method, args);
+                }
+                Object result = invoke(connection, method, args);
+                String name = method.getName();
+                if ((name.equals("prepareStatement") || name.equals("createStatement")) && sampled()) {
+                    String sql = name.equals("prepareStatement") ? (String) args[0] : null;
+                    Class<?> type = sql != null ? PreparedStatement.class : Statement.class;
+                    return Proxy.newProxyInstance(
+                        ObservedDataSource.class.getClassLoader(),
+                        new Class<?>[]{type},
+                        new StatementHandler(connection, (Statement) result, sql));
+                }
+                return result;
+            });
+    }
+
+    private boolean sampled() {
+        ObservationRegistry registry = observationRegistry.getIfAvailable();
+        if (registry == null || registry.isNoop()) {
+            return false;
+        }
+        Tracer currentTracer = tracer.getIfAvailable();
+        if (currentTracer == null) {
+            return registry.getCurrentObservation() != null;
+        }
+        Span span = currentTracer.currentSpan();
+        return span != null && Boolean.TRUE.equals(span.context().sampled());
+    }
+
+    private static boolean isIdentityMethod(Method method) {
+        return method.getName().equals("equals") || method.getName().equals("hashCode");
+    }
+
+    /**
+     * {@code equals} and {@code hashCode} of a proxy: it is only equal to itself, whatever its target says.
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final Statement target;
+        private final String sql;
+        // bound values by index, for EXPLAIN; plain statements carry their SQL in execute/addBatch
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private String lastBatchSql;
+
+        StatementHandler(Connection connection, Statement target, String sql) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isIdentityMethod(method)) {
+                return identity(proxy, method, args);
+            }
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch") && args != null && args.length == 1) {
+                lastBatchSql = (String) args[0];
+            }
+            if (!name.startsWith("execute")) {
+                return ObservedDataSource.invoke(target, method, args);
+            }
+
+            boolean batch = name.startsWith("executeBatch") || name.startsWith("executeLargeBatch");
+            String statementSql = sql != null ? sql
+                : args != null && args.length > 0 && args[0] instanceof String text ? text : lastBatchSql;
+            String normalized = SqlNormalizer.normalize(statementSql);
+            String operation = SqlNormalizer.operation(normalized);
+            ObservationRegistry registry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+            ObservationView repositoryCall = enclosingRepositoryCall(registry.getCurrentObservation());
+            Observation observation = Observation.createNotStarted(OBSERVATION, registry)
+                .contextualName("jdbc " + operation.toLowerCase(Locale.ROOT))
+                .lowCardinalityKeyValue("db.operation", operation)
+                .lowCardinalityKeyValue("repository", tagOf(repositoryCall, "repository"))
+                .lowCardinalityKeyValue("method", tagOf(repositoryCall, "method"))
+                .highCardinalityKeyValue("db.statement", normalized)
+                .start();
+            long start = System.nanoTime();
+            Object result;
+            try (Observation.Scope scope = observation.openScope()) {
+                result = ObservedDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                observation.error(e);
+                observation.stop();
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            boolean slow = elapsed >= slowThresholdNanos;
+            if (slow) {
+                observation.highCardinalityKeyValue("db.slow", "true");
+            }
+            observation.stop();
+
+            // after stop, so the statement span does not include the EXPLAIN round trip
+            String plan = slow && !batch && EXPLAINABLE.contains(operation)
+                ? explain(statementSql, normalized, registry, repositoryCall)
+                : null;
+            if (slow) {
+                log.warn("Slow statement ({} ms): {}{}", elapsed / 1_000_000, normalized,
+                    plan != null ? System.lineSeparator() + plan : "");
+            }
+            return result;
+        }
+
+        private String explain(String statementSql, String normalized, ObservationRegistry registry,
+                               ObservationView repositoryCall) {
+            if (streaming()) {
+                return null;
+            }
+            long now = System.nanoTime();
+            Long last = lastExplained.get(normalized);
+            if (last != null && now - last < explainIntervalNanos) {
+                return null;
+            }
+            if (lastExplained.size() >= MAX_EXPLAINED_STATEMENTS) {
+                lastExplained.clear();
+            }
+            lastExplained.put(normalized, now);
+            Observation observation = Observation.createNotStarted(EXPLAIN_OBSERVATION, registry)
+                .contextualName("jdbc explain")
+                .lowCardinalityKeyValue("repository", tagOf(repositoryCall, "repository"))
+                .lowCardinalityKeyValue("method", tagOf(repositoryCall, "method"))
+                .highCardinalityKeyValue("db.statement", normalized)
+                .start();
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statementSql)) {
+                for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+                    explain.setObject(parameter.getKey(), parameter.getValue());
+                }
+                try (ResultSet result = explain.executeQuery()) {
+                    String plan = format(result);
+                    observation.highCardinalityKeyValue("db.plan", plan);
+                    return plan;
+                }
+            } catch (SQLException e) {
+                observation.error(e);
+                log.debug("EXPLAIN failed for {}", normalized, e);
+                return null;
+            } finally {
+                observation.stop();
+            }
+        }
+
+        /**
+         * A MySQL streaming result set keeps the connection busy until it is read.
+         */
+        private boolean streaming() {
+            try {
+                return target.getFetchSize() == Integer.MIN_VALUE;
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+    }
+
+    private static ObservationView enclosingRepositoryCall(ObservationView observation) {
+        while (observation != null
+            && !RepositoryObservationPostProcessor.OBSERVATION.equals(observation.getContextView().getName())) {
+            observation = observation.getContextView().getParentObservation();
+        }
+        return observation;
+    }
+
+    private static String tagOf(ObservationView repositoryCall, String key) {
+        KeyValue value = repositoryCall != null ? repositoryCall.getContextView().getLowCardinalityKeyValue(key) : null;
+        return value != null ? value.getValue() : "none";
+    }
+
+    private static String format(ResultSet plan) throws SQLException {
+        ResultSetMetaData meta = plan.getMetaData();
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            text.append(i > 1 ? "\t" : "").append(meta.getColumnLabel(i));
+        }
+        while (plan.next() && text.length() < MAX_PLAN_LENGTH) {
+            text.append('\n');
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                text.append(i > 1 ? "\t" : "").append(plan.getString(i));
+            }
+        }
+        return text.length() <= MAX_PLAN_LENGTH ? text.toString() : text.substring(0, MAX_PLAN_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,59 @@
+package dev.annopud.jpa_demo.observation;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the application {@link DataSource} in an {@link ObservedDataSource} unless
+ * {@code jpa-demo.db-observation.enabled=false}.
+ * <p>
+ * Wraps the latency injection and JFR events and is wrapped by the pool deadlock detector.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.db-observation.enabled", havingValue = "true", matchIfMissing = true)
+public class ObservedDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+    /**
+     * See {@link dev.annopud.jpa_demo.datasource.LatencyInjectingDataSourcePostProcessor#ORDER}.
+     */
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 200;
+
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+    private final ObjectProvider<Tracer> tracer;
+    private final Duration slowThreshold;
+    private final Duration explainInterval;
+
+    public ObservedDataSourcePostProcessor(
+        ObjectProvider<ObservationRegistry> observationRegistry,
+        ObjectProvider<Tracer> tracer,
+        @Value("${jpa-demo.db-observation.slow-threshold:200ms}") Duration slowThreshold,
+        @Value("${jpa-demo.db-observation.explain-interval:1m}") Duration explainInterval
+    ) {
+        this.observationRegistry = observationRegistry;
+        this.tracer = tracer;
+        this.slowThreshold = slowThreshold;
+        this.explainInterval = explainInterval;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ObservedDataSource) {
+            return bean;
+        }
+        return new ObservedDataSource(dataSource, observationRegistry, tracer, slowThreshold, explainInterval);
+    }
+}
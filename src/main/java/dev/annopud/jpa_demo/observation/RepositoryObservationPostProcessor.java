@@ -0,0 +1,80 @@
+package dev.annopud.jpa_demo.observation;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Adds a {@code jpa.repository} observation around every Spring Data repository method, tagged with
+ * {@code repository} (the interface's simple name) and {@code method}. It is the outermost repository advice, so
+ * it covers the transaction a repository call opens on its own, including the flush and commit; the JDBC
+ * statements run inside it are its children, see {@link ObservedDataSource}. For methods returning a
+ * {@code Stream} it ends when the stream is returned, not when it is consumed.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.db-observation.enabled", havingValue = "true", matchIfMissing = true)
+public class RepositoryObservationPostProcessor implements BeanPostProcessor {
+
+    static final String OBSERVATION = "jpa.repository";
+
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+    public RepositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                (proxyFactory, information) -> {
+                    int afterExpose = Arrays.asList(proxyFactory.getAdvisors()).indexOf(ExposeInvocationInterceptor.ADVISOR) + 1;
+                    proxyFactory.addAdvice(afterExpose,
+                        new Interceptor(observationRegistry, information.getRepositoryInterface().getSimpleName()));
+                }));
+        }
+        return bean;
+    }
+
+    private static final class Interceptor implements MethodInterceptor {
+
+        private final ObjectProvider<ObservationRegistry> observationRegistry;
+        private final String repository;
+
+        Interceptor(ObjectProvider<ObservationRegistry> observationRegistry, String repository) {
+            this.observationRegistry = observationRegistry;
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            String method = invocation.getMethod().getName();
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            Observation observation = Observation.createNotStarted(OBSERVATION,
+                    observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP))
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .start();
+            try (Observation.Scope scope = observation.openScope()) {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                observation.error(e);
+                throw e;
+            } finally {
+                observation.stop();
+            }
+        }
+    }
+}
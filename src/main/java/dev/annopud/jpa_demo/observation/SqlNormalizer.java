@@ -0,0 +1,47 @@
+package dev.annopud.jpa_demo.observation;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces SQL to its shape, so that statements differing only in literals or IN-list length share one
+ * {@code db.statement} value: literals become {@code ?}, IN lists collapse to {@code (?)}, whitespace to one space.
+ */
+final class SqlNormalizer {
+
+    private static final int MAX_LENGTH = 2000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlNormalizer() {
+    }
+
+    static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("in (?)");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").strip();
+        return normalized.length() <= MAX_LENGTH ? normalized : normalized.substring(0, MAX_LENGTH) + "...";
+    }
+
+    /**
+     * First keyword in upper case, e.g. {@code SELECT}; {@code OTHER} if there is none.
+     */
+    static String operation(String sql) {
+        int start = 0;
+        while (start < sql.length() && !Character.isLetter(sql.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return end > start ? sql.substring(start, end).toUpperCase(Locale.ROOT) : "OTHER";
+    }
+}
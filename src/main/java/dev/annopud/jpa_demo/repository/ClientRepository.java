@@ -1,10 +1,18 @@
 package dev.annopud.jpa_demo.repository;
 
 import dev.annopud.jpa_demo.entity.Client;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.NativeQuery;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ClientRepository extends CrudRepository<Client, Long> {
 
@@ -12,11 +20,22 @@ public interface ClientRepository extends CrudRepository<Client, Long> {
 
     Client findById(long id);
 
+    List<Client> findAllByIdIn(Collection<Long> ids);
+
+    @Query("SELECT c.firstName AS firstName, c.lastName AS lastName FROM Client c")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<NameView> streamAllNames();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Client c WHERE c.id = :id")
+    Client findByIdForUpdate(long id);
+
     @NativeQuery("""
          SELECT 
              c.id,
              c.first_name,
-             c.last_name
+             c.last_name,
+             c.version
          FROM client AS c
          WHERE c.id = :id""")
     Client findByIdNative(long id);
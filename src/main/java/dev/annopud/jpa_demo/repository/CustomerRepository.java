@@ -1,10 +1,18 @@
 package dev.annopud.jpa_demo.repository;
 
 import dev.annopud.jpa_demo.entity.Customer;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.NativeQuery;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface CustomerRepository extends CrudRepository<Customer, Long> {
 
@@ -12,12 +20,23 @@ public interface CustomerRepository extends CrudRepository<Customer, Long> {
 
     Customer findById(long id);
 
+    List<Customer> findAllByIdIn(Collection<Long> ids);
+
+    @Query("SELECT c.firstName AS firstName, c.lastName AS lastName FROM Customer c")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<NameView> streamAllNames();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id = :id")
+    Customer findByIdForUpdate(long id);
+
 
     @NativeQuery("""
          SELECT 
              c.id,
              c.first_name,
-             c.last_name
+             c.last_name,
+             c.version
          FROM customer AS c
          WHERE c.id = :id""")
     Customer findByIdNative(long id);
@@ -0,0 +1,26 @@
+package dev.annopud.jpa_demo.repository;
+
+import dev.annopud.jpa_demo.entity.GeneralTestingArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.NativeQuery;
+
+import java.util.Collection;
+
+public interface GeneralTestingArchiveRepository extends JpaRepository<GeneralTestingArchive, String> {
+
+    /**
+     * Copies the given {@code general_testing} rows into the archive in one statement.
+     */
+    @Modifying
+    @NativeQuery("""
+         INSERT INTO general_testing_archive (
+             id, type, email_from, email_to, email_cc, email_bcc, email_submit_param, email_error,
+             email_status, email_date, create_by, create_date, update_by, update_date, archived_at)
+         SELECT
+             g.id, g.type, g.email_from, g.email_to, g.email_cc, g.email_bcc, g.email_submit_param, g.email_error,
+             g.email_status, g.email_date, g.create_by, g.create_date, g.update_by, g.update_date, CURRENT_TIMESTAMP
+         FROM general_testing AS g
+         WHERE g.id IN :ids""")
+    int archiveFromGeneralTesting(Collection<String> ids);
+}
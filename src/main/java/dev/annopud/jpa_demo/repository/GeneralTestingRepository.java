@@ -1,9 +1,79 @@
 package dev.annopud.jpa_demo.repository;
 
 import dev.annopud.jpa_demo.entity.GeneralTesting;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 public interface GeneralTestingRepository extends JpaRepository<GeneralTesting, String>, JpaSpecificationExecutor<GeneralTesting> {
 
-}
\ No newline at end of file
+    List<GeneralTesting> findAllByIdIn(Collection<String> ids);
+
+    /**
+     * Cheap validator for the whole table: inserts and updates move {@code lastChange} ({@code update_date} is
+     * set on insert too and kept to the millisecond), deletes change {@code rowCount}. Both come from {@code idx_general_testing_update_date}.
+     */
+    @Query("SELECT COUNT(g) AS rowCount, MAX(g.updateDate) AS lastChange FROM GeneralTesting g")
+    TableVersion findTableVersion();
+
+    @Query("SELECT g.updateDate FROM GeneralTesting g WHERE g.id = :id")
+    Optional<Date> findUpdateDateById(String id);
+
+    /**
+     * Oldest rows first, served by {@code idx_general_testing_create_date}.
+     */
+    @Query("SELECT g.id FROM GeneralTesting g WHERE g.createDate < :cutoff ORDER BY g.createDate, g.id")
+    List<String> findIdsCreatedBefore(Date cutoff, Pageable pageable);
+
+    /**
+     * Keyset page of rows changed after ({@code since}, {@code afterId}) and before {@code upTo}, served by
+     * {@code idx_general_testing_update_date}.
+     */
+    @Query("""
+         SELECT g FROM GeneralTesting g
+         WHERE (g.updateDate > :since OR (g.updateDate = :since AND g.id > :afterId))
+           AND g.updateDate < :upTo
+         ORDER BY g.updateDate, g.id""")
+    List<GeneralTesting> findChangedAfter(Date since, String afterId, Date upTo, Pageable pageable);
+
+    /**
+     * Keyset page of {@code [id, stored email_submit_param, update_date]}; the payload is in its stored form, see
+     * {@link dev.annopud.jpa_demo.converter.PayloadCodec}.
+     */
+    @Query("""
+         SELECT g.id, g.emailSubmitParam, g.updateDate FROM GeneralTesting g
+         WHERE g.id > :afterId AND g.emailSubmitParam IS NOT NULL
+         ORDER BY g.id""")
+    List<Object[]> findStoredPayloadsAfter(String afterId, Pageable pageable);
+
+    /**
+     * Rewrites the stored payload without touching {@code update_date}, and only if the row has not changed since
+     * {@code updateDate} was read. Bulk JPQL, so {@code @PreUpdate} does not run.
+     */
+    @Modifying
+    @Query("UPDATE GeneralTesting g SET g.emailSubmitParam = :stored WHERE g.id = :id AND g.updateDate = :updateDate")
+    int replaceStoredPayload(String id, byte[] stored, Date updateDate);
+
+    /**
+     * {@code [email_status, type, email_date]} of the given rows, for the status rollup before a bulk delete.
+     */
+    @Query("SELECT g.emailStatus, g.type, g.emailDate FROM GeneralTesting g WHERE g.id IN :ids")
+    List<Object[]> findRollupKeysOf(Collection<String> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM GeneralTesting g WHERE g.id IN :ids")
+    int deleteByIds(Collection<String> ids);
+
+    interface TableVersion {
+        long getRowCount();
+
+        Date getLastChange();
+    }
+}
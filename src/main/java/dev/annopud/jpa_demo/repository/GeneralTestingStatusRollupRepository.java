@@ -0,0 +1,35 @@
+package dev.annopud.jpa_demo.repository;
+
+import dev.annopud.jpa_demo.entity.GeneralTestingStatusRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.NativeQuery;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface GeneralTestingStatusRollupRepository
+    extends JpaRepository<GeneralTestingStatusRollup, GeneralTestingStatusRollup.Key> {
+
+    @Query("""
+         SELECT r FROM GeneralTestingStatusRollup r
+         WHERE r.id.emailDay BETWEEN :from AND :to AND r.rowCount <> 0
+         ORDER BY r.id.emailDay, r.id.emailStatus, r.id.type""")
+    List<GeneralTestingStatusRollup> findByDayBetween(LocalDate from, LocalDate to);
+
+    @Modifying(clearAutomatically = true)
+    @NativeQuery("DELETE FROM general_testing_status_rollup")
+    int deleteAllRows();
+
+    /**
+     * Recomputes every count with one GROUP BY over {@code general_testing}; used for repair only.
+     */
+    @Modifying(clearAutomatically = true)
+    @NativeQuery("""
+         INSERT INTO general_testing_status_rollup (email_status, type, email_day, row_count)
+         SELECT COALESCE(g.email_status, ''), g.type, COALESCE(CAST(g.email_date AS DATE), DATE '1000-01-01'), COUNT(*)
+         FROM general_testing AS g
+         GROUP BY COALESCE(g.email_status, ''), g.type, COALESCE(CAST(g.email_date AS DATE), DATE '1000-01-01')""")
+    int insertFromGeneralTesting();
+}
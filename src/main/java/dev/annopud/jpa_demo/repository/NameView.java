@@ -0,0 +1,11 @@
+package dev.annopud.jpa_demo.repository;
+
+/**
+ * First and last name of a {@code Customer} or {@code Client}, without loading the entity.
+ */
+public interface NameView {
+
+    String getFirstName();
+
+    String getLastName();
+}
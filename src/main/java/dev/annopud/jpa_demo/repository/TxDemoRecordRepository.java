@@ -1,9 +1,43 @@
 package dev.annopud.jpa_demo.repository;
 
 import dev.annopud.jpa_demo.entity.TxDemoRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.NativeQuery;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface TxDemoRecordRepository extends JpaRepository<TxDemoRecord, Long> {
 
-}
+    @Query("SELECT r.tag FROM TxDemoRecord r ORDER BY r.id")
+    List<String> findAllTags();
+
+    @Query("SELECT r.id FROM TxDemoRecord r ORDER BY r.id")
+    List<Long> findIds(Pageable pageable);
 
+    /**
+     * Single DELETE statement; the persistence context is flushed before and cleared after so no managed
+     * instance outlives its row.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM TxDemoRecord")
+    int deleteAllInBulk();
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM TxDemoRecord r WHERE r.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
+
+    /**
+     * DDL on MySQL: commits implicitly, so never call it inside a wider transaction.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @NativeQuery("TRUNCATE TABLE tx_demo_record")
+    void truncate();
+}
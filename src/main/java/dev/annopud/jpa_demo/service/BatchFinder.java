@@ -0,0 +1,137 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.Client;
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.repository.ClientRepository;
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Loads many entities by id with as few, and as few distinct, statements as possible.
+ * <p>
+ * Ids already managed in the current persistence context are taken from it. The rest are queried in IN-list
+ * chunks of at most {@code max-chunk-size}, each padded to the next power of two by repeating its last id, so
+ * the database and Hibernate only ever see a handful of statement shapes (1, 2, 4, ... parameters) instead of
+ * one per list length. Results come back in request order, an id requested twice comes back twice; unknown and
+ * {@code null} ids are left out. A lookup of more than {@code max-ids} ids is rejected with an
+ * {@link IllegalArgumentException}, so a single request cannot hold a connection for an unbounded number of chunks.
+ */
+@Service
+public class BatchFinder {
+
+    private final CustomerRepository customerRepository;
+    private final ClientRepository clientRepository;
+    private final GeneralTestingRepository generalTestingRepository;
+    private final int maxChunkSize;
+    private final int maxIds;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BatchFinder(
+        CustomerRepository customerRepository,
+        ClientRepository clientRepository,
+        GeneralTestingRepository generalTestingRepository,
+        @Value("${jpa-demo.batch-find.max-chunk-size:256}") int maxChunkSize,
+        @Value("${jpa-demo.batch-find.max-ids:1024}") int maxIds
+    ) {
+        this.customerRepository = customerRepository;
+        this.clientRepository = clientRepository;
+        this.generalTestingRepository = generalTestingRepository;
+        if (maxChunkSize < 1) {
+            throw new IllegalArgumentException("max-chunk-size must be at least 1, was " + maxChunkSize);
+        }
+        this.maxChunkSize = Integer.highestOneBit(maxChunkSize);
+        if (maxIds < 1) {
+            throw new IllegalArgumentException("max-ids must be at least 1, was " + maxIds);
+        }
+        this.maxIds = maxIds;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Customer> findCustomers(List<Long> ids) {
+        return findAllInOrder(Customer.class, ids, customerRepository::findAllByIdIn);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Client> findClients(List<Long> ids) {
+        return findAllInOrder(Client.class, ids, clientRepository::findAllByIdIn);
+    }
+
+    @Transactional(readOnly = true)
+    public List<GeneralTesting> findGeneralTestings(List<String> ids) {
+        return findAllInOrder(GeneralTesting.class, ids, generalTestingRepository::findAllByIdIn);
+    }
+
+    private <T, ID> List<T> findAllInOrder(Class<T> type, List<ID> ids, Function<Collection<ID>, List<T>> finder) {
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " ids per lookup, got " + ids.size());
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(type);
+        PersistenceUnitUtil unitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        Map<Object, T> found = new HashMap<>();
+        List<ID> missing = new ArrayList<>();
+        for (ID id : new LinkedHashSet<>(ids)) {
+            if (id == null) {
+                continue;
+            }
+            Object managed = session.getPersistenceContextInternal()
+                .getEntity(session.generateEntityKey(id, persister));
+            if (managed != null) {
+                found.put(id, type.cast(managed));
+            } else {
+                missing.add(id);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += maxChunkSize) {
+            List<ID> chunk = missing.subList(from, Math.min(from + maxChunkSize, missing.size()));
+            for (T entity : finder.apply(padToPowerOfTwo(chunk))) {
+                found.put(unitUtil.getIdentifier(entity), entity);
+            }
+        }
+
+        List<T> result = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            T entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    static <ID> List<ID> padToPowerOfTwo(List<ID> chunk) {
+        int size = chunk.size();
+        int padded = Integer.bitCount(size) == 1 ? size : Integer.highestOneBit(size) << 1;
+        if (padded == size) {
+            return chunk;
+        }
+        List<ID> result = new ArrayList<>(padded);
+        result.addAll(chunk);
+        ID last = chunk.getLast();
+        while (result.size() < padded) {
+            result.add(last);
+        }
+        return result;
+    }
+}
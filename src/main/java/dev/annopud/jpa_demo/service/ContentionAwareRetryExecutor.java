@@ -0,0 +1,131 @@
+package dev.annopud.jpa_demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Runs an update of one row in its own transaction and retries it on optimistic (or lock) conflicts with
+ * exponential backoff and full jitter.
+ * <p>
+ * Conflicts are tracked per row as an exponentially decaying score. While a row's score is below
+ * {@code pessimistic-threshold} the work runs with {@link LockStrategy#OPTIMISTIC} and relies on {@code @Version};
+ * above it the row is hot and the work is asked to take a {@link LockStrategy#PESSIMISTIC} row lock instead, so
+ * writers queue on the database rather than burning retries. Cold rows never pay for the lock.
+ */
+@Component
+public class ContentionAwareRetryExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentionAwareRetryExecutor.class);
+
+    private static final double HALF_LIFE_NANOS = Duration.ofSeconds(10).toNanos();
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double pessimisticThreshold;
+
+    private final Map<RowKey, Contention> contention = new ConcurrentHashMap<>();
+
+    public ContentionAwareRetryExecutor(
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        @Value("${jpa-demo.retry.max-attempts:5}") int maxAttempts,
+        @Value("${jpa-demo.retry.base-backoff:10ms}") Duration baseBackoff,
+        @Value("${jpa-demo.retry.max-backoff:200ms}") Duration maxBackoff,
+        @Value("${jpa-demo.retry.pessimistic-threshold:3}") double pessimisticThreshold
+    ) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.pessimisticThreshold = pessimisticThreshold;
+    }
+
+    /**
+     * Runs {@code work} for the row {@code entityType}/{@code id}. Must be called outside a transaction: a retry
+     * needs a fresh transaction and persistence context.
+     */
+    public <T> T execute(Class<?> entityType, Object id, Function<LockStrategy, T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Retries need their own transaction, call outside of one");
+        }
+        RowKey key = new RowKey(entityType, id);
+        String entity = entityType.getSimpleName();
+        for (int attempt = 1; ; attempt++) {
+            LockStrategy strategy = strategyFor(key);
+            if (strategy == LockStrategy.PESSIMISTIC) {
+                meterRegistry.counter("jpa.retry.pessimistic", "entity", entity).increment();
+            }
+            try {
+                T result = transactionTemplate.execute(status -> work.apply(strategy));
+                contention.computeIfPresent(key, (k, c) -> c.decayed(System.nanoTime()) < 0.01 ? null : c);
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                meterRegistry.counter("jpa.retry.conflicts", "entity", entity).increment();
+                recordConflict(key);
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("jpa.retry.exhausted", "entity", entity).increment();
+                    throw e;
+                }
+                log.debug("Conflict on {}#{} (attempt {}, {}): {}", entity, id, attempt, strategy, e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    LockStrategy strategyFor(RowKey key) {
+        Contention c = contention.get(key);
+        return c != null && c.decayed(System.nanoTime()) >= pessimisticThreshold
+            ? LockStrategy.PESSIMISTIC
+            : LockStrategy.OPTIMISTIC;
+    }
+
+    private void recordConflict(RowKey key) {
+        long now = System.nanoTime();
+        contention.compute(key, (k, c) -> new Contention((c == null ? 0 : c.decayed(now)) + 1, now));
+    }
+
+    private void backoff(int attempt) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    public enum LockStrategy {
+        /** Plain read, conflicts are detected by {@code @Version} at flush */
+        OPTIMISTIC,
+        /** Read with {@code SELECT ... FOR UPDATE} */
+        PESSIMISTIC
+    }
+
+    record RowKey(Class<?> entityType, Object id) {
+    }
+
+    private record Contention(double score, long updatedAt) {
+
+        double decayed(long now) {
+            return score * Math.pow(0.5, (now - updatedAt) / HALF_LIFE_NANOS);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.Client;
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.repository.ClientRepository;
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import dev.annopud.jpa_demo.repository.NameView;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link NamePrefixIndex} over the first and last names of all {@link Customer}s and {@link Client}s, behind
+ * {@code GET /customers/suggest}.
+ * <p>
+ * Built by streaming both tables once the application is ready, then kept current by Hibernate post-commit
+ * insert, update and delete events, so rolled-back changes never show up. Events arriving during a rebuild are
+ * replayed on the rebuilt index, see {@link NamePrefixIndex#startRebuild()}. Writes that bypass the session
+ * (bulk JPQL, the customer write-behind buffer) are picked up by the periodic full rebuild.
+ */
+@Service
+public class CustomerNameIndex implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerNameIndex.class);
+
+    private final NamePrefixIndex index;
+    private final CustomerRepository customerRepository;
+    private final ClientRepository clientRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int maxSuggestions;
+
+    public CustomerNameIndex(
+        CustomerRepository customerRepository,
+        ClientRepository clientRepository,
+        PlatformTransactionManager transactionManager,
+        EntityManagerFactory entityManagerFactory,
+        @Value("${jpa-demo.name-index.compaction-threshold:1024}") int compactionThreshold,
+        @Value("${jpa-demo.name-index.max-suggestions:20}") int maxSuggestions
+    ) {
+        this.index = new NamePrefixIndex(compactionThreshold);
+        this.customerRepository = customerRepository;
+        this.clientRepository = clientRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.entityManagerFactory = entityManagerFactory;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /**
+     * Names starting with {@code prefix}, ignoring case, in alphabetical order. {@code limit} is capped at
+     * {@code jpa-demo.name-index.max-suggestions}.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return index.suggest(prefix.strip(), Math.clamp(limit, 0, maxSuggestions));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${jpa-demo.name-index.rebuild-cron:0 0 * * * *}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        // started before the snapshot is read, so that changes committed while streaming are replayed on it
+        try (NamePrefixIndex.Rebuild rebuild = index.startRebuild()) {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<NameView> customers = customerRepository.streamAllNames();
+                     Stream<NameView> clients = clientRepository.streamAllNames()) {
+                    Stream.concat(customers, clients).forEach(view -> {
+                        rebuild.add(view.getFirstName());
+                        rebuild.add(view.getLastName());
+                    });
+                }
+            });
+            rebuild.finish();
+        }
+        log.info("Name index rebuilt in {} ms, {} distinct names", (System.nanoTime() - start) / 1_000_000, index.size());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (!requiresPostCommitHandling(event.getPersister())) {
+            return;
+        }
+        String[] properties = event.getPersister().getPropertyNames();
+        forEachName(properties, event.getState(), index::add);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!requiresPostCommitHandling(event.getPersister())) {
+            return;
+        }
+        String[] properties = event.getPersister().getPropertyNames();
+        if (event.getOldState() != null) {
+            forEachName(properties, event.getOldState(), index::remove);
+        }
+        forEachName(properties, event.getState(), index::add);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (!requiresPostCommitHandling(event.getPersister())) {
+            return;
+        }
+        String[] properties = event.getPersister().getPropertyNames();
+        forEachName(properties, event.getDeletedState(), index::remove);
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == Customer.class || type == Client.class;
+    }
+
+    private static void forEachName(String[] properties, Object[] state, Consumer<String> action) {
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i].equals("firstName") || properties[i].equals("lastName")) {
+                action.accept((String) state[i]);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import dev.annopud.jpa_demo.entity.Customer;
 import dev.annopud.jpa_demo.listener.LoggingListener.LoggingEvent;
 import dev.annopud.jpa_demo.repository.ClientRepository;
 import dev.annopud.jpa_demo.repository.CustomerRepository;
+import dev.annopud.jpa_demo.service.ContentionAwareRetryExecutor.LockStrategy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class CustomerService {
@@ -24,6 +26,8 @@ public class CustomerService {
     private final CustomerRepository customerRepository;
     private final ClientRepository clientRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final ContentionAwareRetryExecutor retryExecutor;
+    private final Optional<CustomerWriteBehindBuffer> writeBehindBuffer;
     @Value("${spring.application.version:}")
     private String version;
 
@@ -34,11 +38,15 @@ public class CustomerService {
     public CustomerService(
         CustomerRepository customerRepository,
         ClientRepository clientRepository,
-        ApplicationEventPublisher eventPublisher
+        ApplicationEventPublisher eventPublisher,
+        ContentionAwareRetryExecutor retryExecutor,
+        Optional<CustomerWriteBehindBuffer> writeBehindBuffer
     ) {
         this.customerRepository = customerRepository;
         this.clientRepository = clientRepository;
         this.eventPublisher = eventPublisher;
+        this.retryExecutor = retryExecutor;
+        this.writeBehindBuffer = writeBehindBuffer;
     }
 
     @Transactional
@@ -96,11 +104,20 @@ public class CustomerService {
         customer.setFirstName("updatedFirstxxxxxxxxxxxxxx");
     }
 
-    @Transactional
+    // concurrent calls update the same row, so each runs in its own retried transaction
     public void transactionalMethod() {
-        log.info("Calling getCustomerById");
-        Customer customer = customerRepository.findById(1);
-        customer.setFirstName("transactionalMethod");
-        log.info("Finished calling getCustomerById");
+        if (writeBehindBuffer.isPresent()) {
+            writeBehindBuffer.get().update(1L, "transactionalMethod", null);
+            return;
+        }
+        retryExecutor.execute(Customer.class, 1L, lockStrategy -> {
+            log.info("Calling getCustomerById ({})", lockStrategy);
+            Customer customer = lockStrategy == LockStrategy.PESSIMISTIC
+                ? customerRepository.findByIdForUpdate(1)
+                : customerRepository.findById(1);
+            customer.setFirstName("transactionalMethod");
+            log.info("Finished calling getCustomerById");
+            return customer;
+        });
     }
 }
@@ -0,0 +1,250 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.Customer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in write-behind for {@link Customer} name updates ({@code jpa-demo.customer.write-behind.enabled=true}).
+ * <p>
+ * Updates to the same id are merged in memory and written once per {@code window} as a single JDBC batch.
+ * Customers loaded while an update is pending (or being written) get the pending names applied, both to the
+ * instance and to Hibernate's loaded state, so the overlay does not make the entity dirty. A written batch stays
+ * in the overlay for a while with the {@code version} it committed: a row read before that commit (a SELECT that
+ * raced the flush, or an older snapshot) still has a lower version and gets the written names as well. The buffer
+ * is drained when the context stops.
+ * <p>
+ * The batch bumps {@code version}, so a caller that loaded a customer before the write and then changes it
+ * through JPA gets an optimistic lock failure, like any other concurrent update.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.customer.write-behind.enabled", havingValue = "true")
+public class CustomerWriteBehindBuffer implements SmartLifecycle, PostLoadEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerWriteBehindBuffer.class);
+
+    private static final String UPDATE_SQL = """
+        UPDATE customer
+        SET first_name = COALESCE(?, first_name),
+            last_name = COALESCE(?, last_name),
+            version = version + 1
+        WHERE id = ?""";
+
+    private static final String VERSIONS_SQL = "SELECT id, version FROM customer WHERE id IN (:ids)";
+
+    /**
+     * How long a written batch is kept for loads that read the row before it committed.
+     */
+    private static final Duration WRITTEN_RETENTION = Duration.ofMinutes(1);
+
+    private final Map<Long, PendingName> pending = new ConcurrentHashMap<>();
+    private final Map<Long, PendingName> writing = new ConcurrentHashMap<>();
+    private final Map<Long, WrittenName> written = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Duration window;
+    private final Counter updates;
+    private final Counter rowsWritten;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public CustomerWriteBehindBuffer(
+        DataSource dataSource,
+        PlatformTransactionManager transactionManager,
+        EntityManagerFactory entityManagerFactory,
+        MeterRegistry meterRegistry,
+        @Value("${jpa-demo.customer.write-behind.window:50ms}") Duration window
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.window = window;
+        this.updates = meterRegistry.counter("jpa.write-behind.updates", "entity", "Customer");
+        this.rowsWritten = meterRegistry.counter("jpa.write-behind.rows-written", "entity", "Customer");
+    }
+
+    /**
+     * Queues a name change; a {@code null} name is left unchanged.
+     */
+    public void update(long id, String firstName, String lastName) {
+        pending.merge(id, new PendingName(firstName, lastName), PendingName::then);
+        updates.increment();
+    }
+
+    /**
+     * Names not yet in the database for {@code id}: those being written, overlaid with those queued since.
+     */
+    public PendingName pendingFor(long id) {
+        // entries move pending -> writing (put before remove) and back writing -> pending on failure (merge
+        // before clear), so reading writing first sees them in at least one place; if a flush moved one between
+        // the two reads, it is in writing by now
+        PendingName inFlight = writing.get(id);
+        PendingName queued = pending.get(id);
+        if (inFlight == null && queued == null) {
+            inFlight = writing.get(id);
+        }
+        if (inFlight == null) {
+            return queued;
+        }
+        return queued == null ? inFlight : inFlight.then(queued);
+    }
+
+    /**
+     * Writes everything queued so far in one batch. Called by the scheduler every {@code window}.
+     */
+    public synchronized void flush() {
+        long now = System.nanoTime();
+        written.values().removeIf(name -> now - name.writtenAtNanos() > WRITTEN_RETENTION.toNanos());
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, PendingName> entry : pending.entrySet()) {
+            Long id = entry.getKey();
+            PendingName name = entry.getValue();
+            writing.put(id, name);
+            // an update merged in since the read stays queued; it contains this one and goes with the next batch
+            pending.remove(id, name);
+            batch.add(new Object[]{name.firstName(), name.lastName(), id});
+        }
+        try {
+            Map<Long, Long> versions = transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+                // read back under the row locks of the update: the versions this batch committed
+                Map<Long, Long> committed = new HashMap<>();
+                namedParameterJdbcTemplate.query(VERSIONS_SQL, Map.of("ids", writing.keySet()),
+                    (RowCallbackHandler) rs -> committed.put(rs.getLong(1), rs.getLong(2)));
+                return committed;
+            });
+            // published before the entries leave writing, so a load always finds them in one of the two
+            long writtenAt = System.nanoTime();
+            versions.forEach((id, version) -> written.put(id, new WrittenName(writing.get(id), version, writtenAt)));
+            rowsWritten.increment(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush of {} customers failed, requeueing", batch.size(), e);
+            // newer updates queued in the meantime win over the failed ones
+            writing.forEach((id, name) -> pending.merge(id, name, (newer, failed) -> failed.then(newer)));
+        } finally {
+            writing.clear();
+        }
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        if (!(event.getEntity() instanceof Customer customer) || customer.getId() == null) {
+            return;
+        }
+        PendingName name = pendingFor(customer.getId());
+        WrittenName done = written.get(customer.getId());
+        if (done != null && customer.getVersion() != null && customer.getVersion() < done.version()) {
+            // the row was read before that batch committed
+            name = name == null ? done.name() : done.name().then(name);
+        }
+        if (name == null) {
+            return;
+        }
+        EntityEntry entry = event.getSession().getPersistenceContextInternal().getEntry(customer);
+        Object[] loadedState = entry != null ? entry.getLoadedState() : null;
+        String[] properties = event.getPersister().getPropertyNames();
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i].equals("firstName") && name.firstName() != null) {
+                customer.setFirstName(name.firstName());
+                if (loadedState != null) {
+                    loadedState[i] = name.firstName();
+                }
+            } else if (properties[i].equals("lastName") && name.lastName() != null) {
+                customer.setLastName(name.lastName());
+                if (loadedState != null) {
+                    loadedState[i] = name.lastName();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class)
+            .appendListeners(EventType.POST_LOAD, this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "customer-write-behind"));
+        long millis = window.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            log.error("{} customer updates could not be written on shutdown", pending.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush failed", e);
+        }
+    }
+
+    private record WrittenName(PendingName name, long version, long writtenAtNanos) {
+    }
+
+    public record PendingName(String firstName, String lastName) {
+
+        PendingName then(PendingName newer) {
+            return new PendingName(
+                newer.firstName != null ? newer.firstName : firstName,
+                newer.lastName != null ? newer.lastName : lastName
+            );
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Rows of {@code general_testing} created or updated since a watermark, oldest change first.
+ * <p>
+ * The watermark is an opaque token for the ({@code update_date}, {@code id}) of the last row returned. Only
+ * changes older than {@code settle-time} are served: a transaction that wrote an earlier {@code update_date}
+ * but commits late would otherwise be skipped by a reader that already moved past it. The same margin absorbs
+ * MySQL rounding {@code DATETIME} up to the next second.
+ */
+@Service
+public class GeneralTestingChangeFeed {
+
+    private static final Date BEGINNING = new Date(0);
+
+    private final GeneralTestingRepository generalTestingRepository;
+    private final Duration settleTime;
+    private final int maxPageSize;
+
+    public GeneralTestingChangeFeed(
+        GeneralTestingRepository generalTestingRepository,
+        @Value("${jpa-demo.change-feed.settle-time:5s}") Duration settleTime,
+        @Value("${jpa-demo.change-feed.max-page-size:500}") int maxPageSize
+    ) {
+        this.generalTestingRepository = generalTestingRepository;
+        this.settleTime = settleTime;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Transactional(readOnly = true)
+    public Page changesSince(String watermark, int limit) {
+        Position from = watermark == null || watermark.isBlank() ? new Position(BEGINNING, "") : decode(watermark);
+        int pageSize = Math.clamp(limit, 1, maxPageSize);
+        Date upTo = new Date(System.currentTimeMillis() - settleTime.toMillis());
+
+        List<GeneralTesting> rows = generalTestingRepository.findChangedAfter(
+            from.updateDate(), from.id(), upTo, PageRequest.ofSize(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<GeneralTesting> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Position next = items.isEmpty()
+            ? from
+            : new Position(items.getLast().getUpdateDate(), items.getLast().getId());
+        return new Page(items, encode(next), hasMore);
+    }
+
+    static String encode(Position position) {
+        String raw = position.updateDate().getTime() + ":" + position.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decode(String watermark) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(watermark), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new Position(new Date(Long.parseLong(raw.substring(0, separator))), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid watermark: " + watermark, e);
+        }
+    }
+
+    record Position(Date updateDate, String id) {
+    }
+
+    /**
+     * One page of changes; pass {@code watermark} back to continue. While {@code hasMore} is {@code true} the
+     * next page is available right away.
+     */
+    public record Page(List<GeneralTesting> items, String watermark, boolean hasMore) {
+    }
+}
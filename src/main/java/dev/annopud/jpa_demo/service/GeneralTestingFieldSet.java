@@ -0,0 +1,72 @@
+package dev.annopud.jpa_demo.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code GeneralTesting} attributes a list response carries, parsed from {@code ?fields=a,b,c}.
+ * <p>
+ * Without {@code fields} every attribute except the {@link #LARGE} ones is returned; {@code fields=*} returns all
+ * of them. {@code id} is always included. Attributes keep their declaration order whatever the request order, so
+ * equal sets give equal responses and ETags.
+ */
+public record GeneralTestingFieldSet(List<String> names) {
+
+    public static final List<String> ALL_NAMES = List.of(
+        "id", "type", "emailFrom", "emailTo", "emailCc", "emailBcc", "emailStatus", "emailDate",
+        "createBy", "createDate", "updateBy", "updateDate", "emailSubmitParam", "emailError");
+
+    /**
+     * Blob and text columns, only read when asked for by name.
+     */
+    public static final Set<String> LARGE = Set.of("emailSubmitParam", "emailError");
+
+    public static final GeneralTestingFieldSet ALL = new GeneralTestingFieldSet(ALL_NAMES);
+
+    public static final GeneralTestingFieldSet DEFAULT =
+        new GeneralTestingFieldSet(ALL_NAMES.stream().filter(name -> !LARGE.contains(name)).toList());
+
+    public GeneralTestingFieldSet {
+        names = List.copyOf(names);
+        for (String name : names) {
+            if (!ALL_NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown field [" + name + "], expected one of " + ALL_NAMES);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the first unknown attribute
+     */
+    public static GeneralTestingFieldSet parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return DEFAULT;
+        }
+        if (fields.strip().equals("*")) {
+            return ALL;
+        }
+        Set<String> requested = new LinkedHashSet<>();
+        requested.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.strip();
+            if (!name.isEmpty() && !ALL_NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown field [" + name + "], expected one of " + ALL_NAMES);
+            }
+            requested.add(name);
+        }
+        return new GeneralTestingFieldSet(ALL_NAMES.stream().filter(requested::contains).toList());
+    }
+
+    /**
+     * Short, stable key of this set, to tell its representation apart from those of other sets: the bitmask of
+     * its attributes' positions in {@link #ALL_NAMES}, in hex, so different sets never share a key.
+     */
+    public String variant() {
+        long mask = 0;
+        for (String name : names) {
+            mask |= 1L << ALL_NAMES.indexOf(name);
+        }
+        return Long.toHexString(mask);
+    }
+}
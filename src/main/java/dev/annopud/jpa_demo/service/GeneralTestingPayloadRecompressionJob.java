@@ -0,0 +1,124 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.converter.PayloadCodec;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites legacy uncompressed {@code general_testing.email_submit_param} values in the {@link PayloadCodec}
+ * format.
+ * <p>
+ * Rows are walked by id in chunks of {@code chunk-size}, each chunk in its own transaction, with {@code pause}
+ * between chunks. A row is only rewritten if its {@code update_date} is unchanged since it was read, so concurrent
+ * edits win; {@code update_date} itself is left alone, the content does not change.
+ */
+@Service
+@ConditionalOnProperty(name = "jpa-demo.payload-recompression.enabled", havingValue = "true")
+public class GeneralTestingPayloadRecompressionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneralTestingPayloadRecompressionJob.class);
+
+    private final GeneralTestingRepository generalTestingRepository;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final Duration pause;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter rowsScanned;
+    private final Counter rowsRewritten;
+
+    public GeneralTestingPayloadRecompressionJob(
+        GeneralTestingRepository generalTestingRepository,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        @Value("${jpa-demo.payload-recompression.chunk-size:500}") int chunkSize,
+        @Value("${jpa-demo.payload-recompression.pause:50ms}") Duration pause
+    ) {
+        this.generalTestingRepository = generalTestingRepository;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.rowsScanned = meterRegistry.counter("general_testing.payload.recompression.rows", "result", "scanned");
+        this.rowsRewritten = meterRegistry.counter("general_testing.payload.recompression.rows", "result", "rewritten");
+    }
+
+    @Scheduled(cron = "${jpa-demo.payload-recompression.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * Returns the number of rows rewritten, or {@code -1} if a run is already in progress.
+     */
+    public long run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Payload recompression already in progress, skipping");
+            return -1;
+        }
+        try {
+            log.info("Payload recompression started");
+            long total = 0;
+            String afterId = "";
+            while (afterId != null && !Thread.currentThread().isInterrupted()) {
+                String from = afterId;
+                Chunk chunk = chunkTransaction.execute(status -> recompressChunk(from));
+                total += chunk.rewritten();
+                afterId = chunk.lastId();
+                if (afterId != null) {
+                    sleep();
+                }
+            }
+            log.info("Payload recompression finished, {} rows rewritten", total);
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Chunk recompressChunk(String afterId) {
+        List<Object[]> rows = generalTestingRepository.findStoredPayloadsAfter(afterId, PageRequest.ofSize(chunkSize));
+        if (rows.isEmpty()) {
+            return new Chunk(null, 0);
+        }
+        int rewritten = 0;
+        for (Object[] row : rows) {
+            byte[] stored = (byte[]) row[1];
+            if (PayloadCodec.isCompressed(stored)) {
+                continue;
+            }
+            byte[] encoded = PayloadCodec.encode(stored);
+            if (encoded != stored) {
+                rewritten += generalTestingRepository.replaceStoredPayload((String) row[0], encoded, (Date) row[2]);
+            }
+        }
+        rowsScanned.increment(rows.size());
+        rowsRewritten.increment(rewritten);
+        return new Chunk((String) rows.getLast()[0], rewritten);
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Chunk(String lastId, int rewritten) {
+    }
+}
@@ -0,0 +1,144 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.repository.GeneralTestingArchiveRepository;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves {@code general_testing} rows older than {@code max-age} (by {@code create_date}) to
+ * {@code general_testing_archive}.
+ * <p>
+ * Rows are taken oldest first in chunks of {@code chunk-size}; each chunk is copied and deleted in its own short
+ * transaction, so locks are held for one chunk only. Between chunks the job sleeps {@code sleep-ratio} times the
+ * last chunk's duration (bounded by {@code min-sleep}/{@code max-sleep}): the slower the database answers, the
+ * more room it gets. Moved rows are gone from the source, so an interrupted run simply continues with the
+ * oldest remaining row next time.
+ */
+@Service
+@ConditionalOnProperty(name = "jpa-demo.retention.enabled", havingValue = "true")
+public class GeneralTestingRetentionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneralTestingRetentionJob.class);
+
+    private final GeneralTestingRepository generalTestingRepository;
+    private final GeneralTestingArchiveRepository archiveRepository;
+    private final GeneralTestingStatusRollups statusRollups;
+    private final TransactionTemplate chunkTransaction;
+    private final Duration maxAge;
+    private final int chunkSize;
+    private final double sleepRatio;
+    private final Duration minSleep;
+    private final Duration maxSleep;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong currentSleepMillis = new AtomicLong();
+    private final Counter rowsArchived;
+    private final Counter chunks;
+    private final Timer chunkTimer;
+
+    public GeneralTestingRetentionJob(
+        GeneralTestingRepository generalTestingRepository,
+        GeneralTestingArchiveRepository archiveRepository,
+        GeneralTestingStatusRollups statusRollups,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        @Value("${jpa-demo.retention.max-age:90d}") Duration maxAge,
+        @Value("${jpa-demo.retention.chunk-size:500}") int chunkSize,
+        @Value("${jpa-demo.retention.sleep-ratio:1.0}") double sleepRatio,
+        @Value("${jpa-demo.retention.min-sleep:10ms}") Duration minSleep,
+        @Value("${jpa-demo.retention.max-sleep:5s}") Duration maxSleep
+    ) {
+        this.generalTestingRepository = generalTestingRepository;
+        this.archiveRepository = archiveRepository;
+        this.statusRollups = statusRollups;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.maxAge = maxAge;
+        this.chunkSize = chunkSize;
+        this.sleepRatio = sleepRatio;
+        this.minSleep = minSleep;
+        this.maxSleep = maxSleep;
+        this.rowsArchived = meterRegistry.counter("general_testing.retention.rows");
+        this.chunks = meterRegistry.counter("general_testing.retention.chunks");
+        this.chunkTimer = meterRegistry.timer("general_testing.retention.chunk.duration");
+        meterRegistry.gauge("general_testing.retention.sleep", currentSleepMillis);
+    }
+
+    @Scheduled(cron = "${jpa-demo.retention.cron:0 0 3 * * *}")
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * Archives everything older than {@code max-age} at the time of the call. Returns the number of rows moved,
+     * or {@code -1} if a run is already in progress.
+     */
+    public long run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Retention run already in progress, skipping");
+            return -1;
+        }
+        try {
+            Date cutoff = Date.from(Instant.now().minus(maxAge));
+            log.info("Retention run started, archiving general_testing rows created before {}", cutoff);
+            long total = 0;
+            int moved;
+            do {
+                long start = System.nanoTime();
+                moved = chunkTransaction.execute(status -> archiveChunk(cutoff));
+                Duration took = Duration.ofNanos(System.nanoTime() - start);
+                chunkTimer.record(took);
+                if (moved > 0) {
+                    total += moved;
+                    chunks.increment();
+                    rowsArchived.increment(moved);
+                    log.debug("Archived {} rows in {} ms, {} so far", moved, took.toMillis(), total);
+                    pause(took);
+                }
+            } while (moved > 0 && !Thread.currentThread().isInterrupted());
+            log.info("Retention run finished, {} rows archived", total);
+            return total;
+        } finally {
+            currentSleepMillis.set(0);
+            running.set(false);
+        }
+    }
+
+    private int archiveChunk(Date cutoff) {
+        List<String> ids = generalTestingRepository.findIdsCreatedBefore(cutoff, PageRequest.ofSize(chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archiveRepository.archiveFromGeneralTesting(ids);
+        statusRollups.rowsDeletedInBulk(generalTestingRepository.findRollupKeysOf(ids));
+        return generalTestingRepository.deleteByIds(ids);
+    }
+
+    private void pause(Duration lastChunk) {
+        long millis = Math.round(lastChunk.toMillis() * sleepRatio);
+        millis = Math.clamp(millis, minSleep.toMillis(), maxSleep.toMillis());
+        currentSleepMillis.set(millis);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -13,6 +13,15 @@ public class GeneralTestingService {
     @Autowired
     private GeneralTestingRepository generalTestingRepository;
 
+    @Autowired
+    private SingleFlightFinder singleFlightFinder;
+
+    @Autowired
+    private BatchFinder batchFinder;
+
+    @Autowired
+    private GeneralTestingSparseFinder sparseFinder;
+
     public void delete(String id) {
         generalTestingRepository.deleteById(id);
     }
@@ -22,8 +31,48 @@ public class GeneralTestingService {
             .orElseThrow(() -> new NoSuchElementException("Resource not found: " + id));
     }
 
-    public java.util.List<GeneralTesting> findAll() {
-        return generalTestingRepository.findAll();
+    public GeneralTesting findById(String id) {
+        return singleFlightFinder.findGeneralTesting(id)
+            .orElseThrow(() -> new NoSuchElementException("Resource not found: " + id));
+    }
+
+    /**
+     * All rows with only the attributes in {@code fields}, see {@link GeneralTestingFieldSet}.
+     */
+    public java.util.List<GeneralTestingSparseRow> findAll(GeneralTestingFieldSet fields) {
+        return sparseFinder.findAll(fields);
+    }
+
+    public java.util.List<GeneralTesting> findAllById(java.util.List<String> ids) {
+        return batchFinder.findGeneralTestings(ids);
+    }
+
+    /**
+     * Validator of the whole table: changes whenever a row is inserted, updated or deleted. Responses of
+     * {@link #findAll(GeneralTestingFieldSet)} add {@link GeneralTestingFieldSet#variant()}.
+     */
+    public ResourceVersion tableValidator() {
+        GeneralTestingRepository.TableVersion version = generalTestingRepository.findTableVersion();
+        long lastChange = version.getLastChange() != null ? version.getLastChange().getTime() : 0;
+        return new ResourceVersion(version.getRowCount() + "-" + lastChange, lastChange);
+    }
+
+    /**
+     * Validator of {@link #findById(String)}, empty if there is no such row.
+     */
+    public java.util.Optional<ResourceVersion> validator(String id) {
+        return generalTestingRepository.findUpdateDateById(id).map(GeneralTestingService::versionOf);
+    }
+
+    /**
+     * Validator of a row as {@link #findById(String)} returned it, empty if it has no {@code update_date}.
+     */
+    public java.util.Optional<ResourceVersion> validatorOf(GeneralTesting row) {
+        return java.util.Optional.ofNullable(row.getUpdateDate()).map(GeneralTestingService::versionOf);
+    }
+
+    private static ResourceVersion versionOf(java.util.Date updateDate) {
+        return new ResourceVersion(Long.toString(updateDate.getTime()), updateDate.getTime());
     }
 
     public void save(GeneralTesting body) {
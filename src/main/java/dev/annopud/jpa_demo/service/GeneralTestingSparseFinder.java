@@ -0,0 +1,56 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Lists {@code general_testing} as {@link GeneralTestingSparseRow}s with a tuple query that selects only the
+ * columns of the requested {@link GeneralTestingFieldSet}, so the others are neither read nor held. No entities
+ * are managed, so there is no dirty checking or snapshot per row either.
+ */
+@Service
+public class GeneralTestingSparseFinder {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public List<GeneralTestingSparseRow> findAll(GeneralTestingFieldSet fields) {
+        return read(query(fields), fields);
+    }
+
+    /**
+     * The first {@code maxResults} rows of {@link #findAll}, in no particular order.
+     */
+    @Transactional(readOnly = true)
+    public List<GeneralTestingSparseRow> findFirst(GeneralTestingFieldSet fields, int maxResults) {
+        return read(query(fields).setMaxResults(maxResults), fields);
+    }
+
+    private TypedQuery<Tuple> query(GeneralTestingFieldSet fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<GeneralTesting> root = query.from(GeneralTesting.class);
+        query.multiselect(fields.names().stream()
+            .<Selection<?>>map(name -> root.get(name).alias(name))
+            .toList());
+        return entityManager.createQuery(query);
+    }
+
+    private static List<GeneralTestingSparseRow> read(TypedQuery<Tuple> query, GeneralTestingFieldSet fields) {
+        return query.getResultList().stream()
+            .map(tuple -> new GeneralTestingSparseRow(tuple, fields.names()))
+            .toList();
+    }
+}
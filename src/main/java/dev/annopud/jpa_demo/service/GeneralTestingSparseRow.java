@@ -0,0 +1,50 @@
+package dev.annopud.jpa_demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import dev.annopud.jpa_demo.converter.PayloadCodec;
+import jakarta.persistence.Tuple;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One {@code general_testing} row as selected for a {@link GeneralTestingFieldSet}, written to JSON straight from
+ * the query tuple: the selected attributes only, under the names and in the formats the entity uses.
+ */
+public final class GeneralTestingSparseRow implements JsonSerializable {
+
+    private final Tuple tuple;
+    private final List<String> names;
+
+    GeneralTestingSparseRow(Tuple tuple, List<String> names) {
+        this.tuple = tuple;
+        this.names = names;
+    }
+
+    /**
+     * Value of a selected attribute, {@code emailSubmitParam} decoded; {@link IllegalArgumentException} if it was
+     * not selected.
+     */
+    public Object get(String name) {
+        Object value = tuple.get(name);
+        return name.equals("emailSubmitParam") ? PayloadCodec.decode((byte[]) value) : value;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartObject();
+        for (String name : names) {
+            serializers.defaultSerializeField(name, get(name), generator);
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSer)
+        throws IOException {
+        serialize(generator, serializers);
+    }
+}
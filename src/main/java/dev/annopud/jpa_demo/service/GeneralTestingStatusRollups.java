@@ -0,0 +1,296 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.EmailStatus;
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.entity.GeneralTestingStatusRollup;
+import dev.annopud.jpa_demo.repository.GeneralTestingStatusRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps {@code general_testing_status_rollup} (row counts by email status, type and day of {@code email_date})
+ * current without ever grouping {@code general_testing}.
+ * <p>
+ * Hibernate post-commit insert, update and delete events add {@code +1}/{@code -1} to a {@link LongAdder} per
+ * key, so concurrent writers of the same key do not contend. Every {@code flush-interval} the adders are drained
+ * with {@code sumThenReset} and applied as one JDBC batch of additive upserts. {@link #stats} adds the not yet
+ * flushed deltas to the stored counts; only deltas in the middle of a flush are missed, for its duration.
+ * <p>
+ * Bulk deletes and JDBC imports bypass the session and report their rows through {@link #rowsDeletedInBulk} and
+ * {@link #rowsInsertedInBulk}. Counts can still drift (a crash between commit and flush, writes from elsewhere);
+ * {@link #rebuild} recomputes them.
+ * <p>
+ * {@link #rebuild} takes the day with {@code CAST(email_date AS DATE)}, i.e. in the zone the driver wrote the
+ * {@code DATETIME} in; {@code zone} must name that zone (MySQL's {@code serverTimezone}), so that the keys counted
+ * from events fall on the same day. Empty means the JVM's default zone.
+ */
+@Service
+public class GeneralTestingStatusRollups implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneralTestingStatusRollups.class);
+
+    // MySQL: ON DUPLICATE KEY UPDATE; H2 accepts it in MODE=MySQL
+    private static final String UPSERT_SQL = """
+        INSERT INTO general_testing_status_rollup (email_status, type, email_day, row_count)
+        VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE row_count = row_count + VALUES(row_count)""";
+
+    private final Map<GeneralTestingStatusRollup.Key, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final GeneralTestingStatusRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ZoneId zone;
+
+    public GeneralTestingStatusRollups(
+        GeneralTestingStatusRollupRepository rollupRepository,
+        DataSource dataSource,
+        PlatformTransactionManager transactionManager,
+        EntityManagerFactory entityManagerFactory,
+        @Value("${jpa-demo.status-rollup.zone:}") String zone
+    ) {
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.zone = zone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /**
+     * Counts for {@code email_date} days in {@code [from, to]}, including deltas not flushed yet. Rows without an
+     * {@code email_date} are reported under {@link GeneralTestingStatusRollup.Key#NO_DAY}.
+     */
+    public List<StatusCount> stats(LocalDate from, LocalDate to) {
+        Map<GeneralTestingStatusRollup.Key, Long> counts = new HashMap<>();
+        for (GeneralTestingStatusRollup rollup : rollupRepository.findByDayBetween(from, to)) {
+            counts.put(rollup.getId(), rollup.getRowCount());
+        }
+        pending.forEach((key, delta) -> {
+            LocalDate day = key.getEmailDay();
+            if (!day.isBefore(from) && !day.isAfter(to)) {
+                counts.merge(key, delta.sum(), Long::sum);
+            }
+        });
+        List<StatusCount> result = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> {
+            if (count != 0) {
+                result.add(new StatusCount(key.getEmailDay(), key.getEmailStatus(), key.getType(), count));
+            }
+        });
+        result.sort(Comparator.comparing(StatusCount::day)
+            .thenComparing(StatusCount::emailStatus)
+            .thenComparing(StatusCount::type));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${jpa-demo.status-rollup.flush-interval:5s}")
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Object[]> batch = new ArrayList<>();
+            Map<GeneralTestingStatusRollup.Key, Long> drained = new HashMap<>();
+            pending.forEach((key, adder) -> {
+                long delta = adder.sumThenReset();
+                if (delta != 0) {
+                    drained.put(key, delta);
+                    batch.add(new Object[]{key.getEmailStatus(), key.getType(), java.sql.Date.valueOf(key.getEmailDay()), delta});
+                }
+            });
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, batch));
+                log.debug("Flushed {} status rollup deltas", batch.size());
+            } catch (RuntimeException e) {
+                drained.forEach(this::add);
+                log.warn("Status rollup flush failed, {} deltas kept for the next attempt", drained.size(), e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Recomputes the rollup from {@code general_testing} in one transaction and drops pending deltas. Concurrent
+     * writes committed while it runs may be counted twice or not at all, so run it when writes are quiet.
+     */
+    public int rebuild() {
+        flushLock.lock();
+        try {
+            pending.clear();
+            Integer rows = transactionTemplate.execute(status -> {
+                rollupRepository.deleteAllRows();
+                return rollupRepository.insertFromGeneralTesting();
+            });
+            log.info("Status rollup rebuilt, {} keys", rows);
+            return rows;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Reports rows removed with a bulk statement, as {@code [email_status, type, email_date]}; applied once the
+     * current transaction commits.
+     */
+    public void rowsDeletedInBulk(List<Object[]> keys) {
+        afterCommit(keys, -1);
+    }
+
+    /**
+     * Reports rows added with plain JDBC, in the same shape as {@link #rowsDeletedInBulk}.
+     */
+    public void rowsInsertedInBulk(List<Object[]> keys) {
+        afterCommit(keys, 1);
+    }
+
+    private void afterCommit(List<Object[]> keys, long delta) {
+        Runnable apply = () -> keys.forEach(key -> add(keyOf((EmailStatus) key[0], (Integer) key[1], (Date) key[2]), delta));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof GeneralTesting row) {
+            add(keyOf(row.getEmailStatus(), row.getType(), row.getEmailDate()), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof GeneralTesting row)) {
+            return;
+        }
+        GeneralTestingStatusRollup.Key after = keyOf(row.getEmailStatus(), row.getType(), row.getEmailDate());
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            log.debug("Update of general_testing {} without old state, rollup may drift until rebuilt", row.getId());
+            return;
+        }
+        GeneralTestingStatusRollup.Key before = keyOf(oldState, event.getPersister());
+        if (!before.equals(after)) {
+            add(before, -1);
+            add(after, 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof GeneralTesting) {
+            // the row as it was last loaded or flushed, not as the entity may have been changed since
+            add(keyOf(event.getDeletedState(), event.getPersister()), -1);
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == GeneralTesting.class;
+    }
+
+    private void add(GeneralTestingStatusRollup.Key key, long delta) {
+        pending.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+    }
+
+    private GeneralTestingStatusRollup.Key keyOf(Object[] state, EntityPersister persister) {
+        String[] properties = persister.getPropertyNames();
+        return keyOf(
+            (EmailStatus) state[indexOf(properties, "emailStatus")],
+            (Integer) state[indexOf(properties, "type")],
+            (Date) state[indexOf(properties, "emailDate")]);
+    }
+
+    private GeneralTestingStatusRollup.Key keyOf(EmailStatus status, Integer type, Date emailDate) {
+        return keyOf(status, type, emailDate, zone);
+    }
+
+    static GeneralTestingStatusRollup.Key keyOf(EmailStatus status, Integer type, Date emailDate, ZoneId zone) {
+        return new GeneralTestingStatusRollup.Key(
+            status != null ? status.getCode() : "",
+            type,
+            emailDate != null
+                ? emailDate.toInstant().atZone(zone).toLocalDate()
+                : GeneralTestingStatusRollup.Key.NO_DAY);
+    }
+
+    private static int indexOf(String[] properties, String name) {
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No property " + name);
+    }
+
+    public record StatusCount(LocalDate day, String emailStatus, Integer type, long count) {
+    }
+}
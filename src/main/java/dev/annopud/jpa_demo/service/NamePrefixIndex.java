@@ -0,0 +1,237 @@
+package dev.annopud.jpa_demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Case-insensitive prefix index of names with a reference count per name.
+ * <p>
+ * The bulk of the names lives in two sorted parallel arrays (distinct names, counts), searched by binary search;
+ * changes since the last compaction go to a small skip list of count adjustments. Once that holds
+ * {@code compactionThreshold} names it is merged into new arrays. Both parts are published together as one
+ * immutable-base {@link State}, so readers never lock and always see a consistent pair.
+ * <p>
+ * Names differing only in case share one entry, shown in the spelling that was indexed first.
+ */
+public class NamePrefixIndex {
+
+    private final int compactionThreshold;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile State state = new State(new String[0], new int[0]);
+    // add/remove calls since the running rebuild started, null when none is running; guarded by writeLock
+    private List<Map.Entry<String, Integer>> recorded;
+
+    public NamePrefixIndex(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Replaces the whole index with {@code names}; blank names are ignored.
+     */
+    public void rebuild(Iterable<String> names) {
+        try (Rebuild rebuild = startRebuild()) {
+            names.forEach(rebuild::add);
+            rebuild.finish();
+        }
+    }
+
+    /**
+     * Starts replacing the whole index with the names passed to {@link Rebuild#add(String)}. Until
+     * {@link Rebuild#finish()} the current names keep serving, and {@link #add}/{@link #remove} calls are applied
+     * to them and recorded; {@code finish} replays the recorded calls on the new names, so changes made while the
+     * source was being read are not lost. Start the rebuild before the source is read: calls recorded for changes
+     * the source already contains are counted twice, until the next rebuild. One rebuild runs at a time.
+     */
+    public Rebuild startRebuild() {
+        writeLock.lock();
+        try {
+            if (recorded != null) {
+                throw new IllegalStateException("A rebuild of the index is already running");
+            }
+            recorded = new ArrayList<>();
+        } finally {
+            writeLock.unlock();
+        }
+        return new Rebuild();
+    }
+
+    public void add(String name) {
+        adjust(name, 1);
+    }
+
+    public void remove(String name) {
+        adjust(name, -1);
+    }
+
+    private void adjust(String name, int delta) {
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        String stripped = name.strip();
+        writeLock.lock();
+        try {
+            state = adjust(state, stripped, delta);
+            if (recorded != null) {
+                recorded.add(Map.entry(stripped, delta));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private State adjust(State current, String name, int delta) {
+        current.delta.merge(name, delta, (a, b) -> a + b == 0 ? null : a + b);
+        return current.delta.size() >= compactionThreshold ? current.compact() : current;
+    }
+
+    /**
+     * Up to {@code limit} indexed names starting with {@code prefix} (ignoring case), in alphabetical order.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        State current = state;
+        List<String> result = new ArrayList<>(Math.min(limit, 64));
+        int i = current.lowerBound(prefix);
+        Iterator<Map.Entry<String, Integer>> pending = current.delta.tailMap(prefix, true).entrySet().iterator();
+        Map.Entry<String, Integer> next = pending.hasNext() ? pending.next() : null;
+
+        while (result.size() < limit) {
+            String name = i < current.names.length && startsWith(current.names[i], prefix) ? current.names[i] : null;
+            String adjusted = next != null && startsWith(next.getKey(), prefix) ? next.getKey() : null;
+            if (name == null && adjusted == null) {
+                break;
+            }
+            int cmp = name == null ? 1 : adjusted == null ? -1 : String.CASE_INSENSITIVE_ORDER.compare(name, adjusted);
+            int count = 0;
+            String shown = cmp <= 0 ? name : adjusted;
+            if (cmp <= 0) {
+                count += current.counts[i++];
+            }
+            if (cmp >= 0) {
+                count += next.getValue();
+                next = pending.hasNext() ? pending.next() : null;
+            }
+            if (count > 0) {
+                result.add(shown);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of distinct names in the compacted arrays plus pending adjustments.
+     */
+    public int size() {
+        State current = state;
+        return current.names.length + current.delta.size();
+    }
+
+    /**
+     * A running {@link #startRebuild() rebuild}; closing it without {@link #finish()} abandons it.
+     */
+    public final class Rebuild implements AutoCloseable {
+
+        private final TreeMap<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private boolean done;
+
+        private Rebuild() {
+        }
+
+        /**
+         * Counts one occurrence of {@code name}; blank names are ignored.
+         */
+        public void add(String name) {
+            if (name != null && !name.isBlank()) {
+                counts.merge(name.strip(), 1, Integer::sum);
+            }
+        }
+
+        /**
+         * Replays the changes recorded since the start on the new names and publishes them.
+         */
+        public void finish() {
+            State rebuilt = State.of(counts);
+            writeLock.lock();
+            try {
+                for (Map.Entry<String, Integer> adjustment : recorded) {
+                    rebuilt = adjust(rebuilt, adjustment.getKey(), adjustment.getValue());
+                }
+                state = rebuilt;
+            } finally {
+                recorded = null;
+                done = true;
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (done) {
+                return;
+            }
+            writeLock.lock();
+            try {
+                recorded = null;
+                done = true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private static boolean startsWith(String name, String prefix) {
+        return name.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static final class State {
+        final String[] names;
+        final int[] counts;
+        final ConcurrentSkipListMap<String, Integer> delta = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        State(String[] names, int[] counts) {
+            this.names = names;
+            this.counts = counts;
+        }
+
+        static State of(Map<String, Integer> sortedCounts) {
+            String[] names = new String[sortedCounts.size()];
+            int[] counts = new int[names.length];
+            int n = 0;
+            for (Map.Entry<String, Integer> entry : sortedCounts.entrySet()) {
+                if (entry.getValue() > 0) {
+                    names[n] = entry.getKey();
+                    counts[n++] = entry.getValue();
+                }
+            }
+            return new State(Arrays.copyOf(names, n), Arrays.copyOf(counts, n));
+        }
+
+        State compact() {
+            TreeMap<String, Integer> merged = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = 0; i < names.length; i++) {
+                merged.put(names[i], counts[i]);
+            }
+            delta.forEach((name, adjustment) -> merged.merge(name, adjustment, Integer::sum));
+            return of(merged);
+        }
+
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = names.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (String.CASE_INSENSITIVE_ORDER.compare(names[mid], prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
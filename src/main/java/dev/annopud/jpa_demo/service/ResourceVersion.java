@@ -0,0 +1,15 @@
+package dev.annopud.jpa_demo.service;
+
+/**
+ * What a conditional GET compares: an opaque {@code tag} that changes with every change of the resource, and the
+ * time of the last change in epoch millis ({@code 0} if unknown).
+ */
+public record ResourceVersion(String tag, long lastModified) {
+
+    /**
+     * The version of one representation of the resource, e.g. a field selection.
+     */
+    public ResourceVersion withVariant(String variant) {
+        return new ResourceVersion(tag + "-" + variant, lastModified);
+    }
+}
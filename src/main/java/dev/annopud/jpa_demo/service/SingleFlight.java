@@ -0,0 +1,77 @@
+package dev.annopud.jpa_demo.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller runs the loader, callers arriving while
+ * it runs wait for its result. Every caller, the first included, gets its own {@code copy} of the value.
+ * <p>
+ * Waiting is a {@link CompletableFuture#join()}, which parks a virtual thread without pinning its carrier.
+ * Nothing is cached: once the load finishes the next caller starts a new one.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> copy;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+
+    public SingleFlight(UnaryOperator<V> copy) {
+        this.copy = copy;
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            merged.increment();
+            return copyOf(join(running));
+        }
+        loads.increment();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return copyOf(value);
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V copyOf(V value) {
+        return value == null ? null : copy.apply(value);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loader invocations.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Calls that were served by another caller's load.
+     */
+    public long getMerged() {
+        return merged.sum();
+    }
+}
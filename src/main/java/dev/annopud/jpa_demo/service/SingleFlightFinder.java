@@ -0,0 +1,93 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.Client;
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.repository.ClientRepository;
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * {@code findById} for {@link Customer}, {@link Client} and {@link GeneralTesting} with concurrent lookups of the
+ * same id sharing one SELECT (see {@link SingleFlight}).
+ * <p>
+ * Callers get detached copies, so one caller's changes never leak into another's instance. Inside a transaction
+ * the caller needs a managed instance of its own persistence context, so the lookup goes straight to the
+ * repository.
+ */
+@Service
+public class SingleFlightFinder {
+
+    private final CustomerRepository customerRepository;
+    private final ClientRepository clientRepository;
+    private final GeneralTestingRepository generalTestingRepository;
+
+    private final SingleFlight<Long, Customer> customers = new SingleFlight<>(SingleFlightFinder::detachedCopy);
+    private final SingleFlight<Long, Client> clients = new SingleFlight<>(SingleFlightFinder::detachedCopy);
+    private final SingleFlight<String, GeneralTesting> generalTestings =
+        new SingleFlight<>(SingleFlightFinder::detachedCopy);
+
+    public SingleFlightFinder(
+        CustomerRepository customerRepository,
+        ClientRepository clientRepository,
+        GeneralTestingRepository generalTestingRepository,
+        MeterRegistry meterRegistry
+    ) {
+        this.customerRepository = customerRepository;
+        this.clientRepository = clientRepository;
+        this.generalTestingRepository = generalTestingRepository;
+        register(meterRegistry, "Customer", customers);
+        register(meterRegistry, "Client", clients);
+        register(meterRegistry, "GeneralTesting", generalTestings);
+    }
+
+    public Optional<Customer> findCustomer(long id) {
+        return Optional.ofNullable(load(customers, id, () -> customerRepository.findById(id)));
+    }
+
+    public Optional<Client> findClient(long id) {
+        return Optional.ofNullable(load(clients, id, () -> clientRepository.findById(id)));
+    }
+
+    public Optional<GeneralTesting> findGeneralTesting(String id) {
+        return Optional.ofNullable(
+            load(generalTestings, id, () -> generalTestingRepository.findById(id).orElse(null)));
+    }
+
+    private static <K, V> V load(SingleFlight<K, V> flight, K id, Supplier<V> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        return flight.load(id, loader);
+    }
+
+    /**
+     * Field-by-field copy; the entities have no associations, only {@code byte[]} columns are shared.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T detachedCopy(T entity) {
+        T copy = (T) BeanUtils.instantiateClass(entity.getClass());
+        ReflectionUtils.shallowCopyFieldState(entity, copy);
+        return copy;
+    }
+
+    private static void register(MeterRegistry meterRegistry, String entity, SingleFlight<?, ?> flight) {
+        FunctionCounter.builder("jpa.single-flight.calls", flight, SingleFlight::getLoads)
+            .tag("entity", entity)
+            .tag("result", "loaded")
+            .register(meterRegistry);
+        FunctionCounter.builder("jpa.single-flight.calls", flight, SingleFlight::getMerged)
+            .tag("entity", entity)
+            .tag("result", "merged")
+            .register(meterRegistry);
+    }
+}
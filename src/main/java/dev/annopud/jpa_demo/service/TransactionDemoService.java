@@ -1,13 +1,21 @@
 package dev.annopud.jpa_demo.service;
 
 import dev.annopud.jpa_demo.entity.TxDemoRecord;
+import dev.annopud.jpa_demo.flush.WithFlushMode;
 import dev.annopud.jpa_demo.repository.TxDemoRecordRepository;
+import org.hibernate.FlushMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Date;
 import java.util.List;
@@ -19,10 +27,26 @@ public class TransactionDemoService {
 
     private final TxDemoRecordRepository repository;
     private final TransactionDemoService self; // proxy to call transactional methods
-
-    public TransactionDemoService(TxDemoRecordRepository repository, @Lazy TransactionDemoService self) {
+    private final TransactionTemplate chunkTransaction;
+    private final ClearMode clearMode;
+    private final int clearChunkSize;
+
+    public TransactionDemoService(
+        TxDemoRecordRepository repository,
+        @Lazy TransactionDemoService self,
+        PlatformTransactionManager transactionManager,
+        @Value("${jpa-demo.tx-demo.clear-mode:BULK}") ClearMode clearMode,
+        @Value("${jpa-demo.tx-demo.clear-chunk-size:1000}") int clearChunkSize
+    ) {
         this.repository = repository;
         this.self = self;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clearMode = clearMode;
+        if (clearChunkSize < 1) {
+            throw new IllegalArgumentException("clear-chunk-size must be at least 1, was " + clearChunkSize);
+        }
+        this.clearChunkSize = clearChunkSize;
     }
 
     // Helper to create a record with an identifiable tag
@@ -33,10 +57,10 @@ public class TransactionDemoService {
         repository.save(r);
     }
 
+    @Transactional
+    @WithFlushMode(FlushMode.MANUAL)
     public List<String> listAllTags() {
-        return repository.findAll().stream()
-                .map(TxDemoRecord::getTag)
-                .toList();
+        return repository.findAllTags();
     }
 
     // ========== SCENARIOS ===========
@@ -133,7 +157,40 @@ public class TransactionDemoService {
 
     // Utility to clear the table for clean demos
     public void clearAll() {
-        repository.deleteAll();
-        repository.flush();
+        switch (clearMode) {
+            case TRUNCATE -> truncate();
+            case CHUNKED -> deleteInChunks();
+            default -> repository.deleteAllInBulk();
+        }
+    }
+
+    private void truncate() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // TRUNCATE would commit the caller's transaction on MySQL
+            log.info("Transaction active, clearing tx_demo_record with DELETE instead of TRUNCATE");
+            repository.deleteAllInBulk();
+            return;
+        }
+        repository.truncate();
+    }
+
+    // Each chunk commits on its own so row locks are only held for one chunk at a time
+    private void deleteInChunks() {
+        int deleted;
+        do {
+            deleted = chunkTransaction.execute(status -> {
+                List<Long> ids = repository.findIds(PageRequest.ofSize(clearChunkSize));
+                return ids.isEmpty() ? 0 : repository.deleteByIds(ids);
+            });
+        } while (deleted > 0);
+    }
+
+    public enum ClearMode {
+        /** One DELETE statement for the whole table */
+        BULK,
+        /** TRUNCATE TABLE, falls back to BULK inside a transaction */
+        TRUNCATE,
+        /** DELETE by primary key in chunks of {@code jpa-demo.tx-demo.clear-chunk-size}, one transaction each */
+        CHUNKED
     }
 }
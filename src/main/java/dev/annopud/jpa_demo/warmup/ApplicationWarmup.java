@@ -0,0 +1,251 @@
+package dev.annopud.jpa_demo.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import dev.annopud.jpa_demo.entity.Client;
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.repository.ClientRepository;
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import dev.annopud.jpa_demo.repository.TxDemoRecordRepository;
+import dev.annopud.jpa_demo.service.GeneralTestingFieldSet;
+import dev.annopud.jpa_demo.service.GeneralTestingSparseFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Takes the first-request costs before the readiness probe reports {@code ACCEPTING_TRAFFIC} (Spring Boot flips
+ * it after all runners have finished):
+ * <ol>
+ *     <li>every repository finder is called once with synthetic arguments, in a read-only transaction that is
+ *     rolled back, which builds Hibernate's query plans; the SQL they send is recorded by
+ *     {@link WarmupStatementRecorder};</li>
+ *     <li>the pool is filled to {@code minimumIdle} (less one connection left for other startup work), and the
+ *     recorded statements are prepared on each connection, filling the driver's statement cache;</li>
+ *     <li>the calls are repeated {@code iterations} times so the JIT compiles the repository, Hibernate and
+ *     Jackson paths they go through.</li>
+ * </ol>
+ * The first round's latencies are what the first requests would have paid, the last round's what they pay now;
+ * both are logged with the total time, which is also recorded as the {@code jpa-demo.warmup} startup step.
+ * A failing step is logged and skipped, it never stops the application from starting. Nothing is warmed up when
+ * the application only runs an export or import ({@code jpa-demo.export.file} or {@code jpa-demo.import.file}).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "jpa-demo.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class ApplicationWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ApplicationWarmup.class);
+
+    // ids no row has, so the finders go to the database and come back empty
+    private static final long NO_LONG_ID = -1;
+    private static final String NO_STRING_ID = "~warmup";
+
+    private final DataSource dataSource;
+    private final TransactionTemplate rollbackOnly;
+    private final WarmupStatementRecorder recorder;
+    private final ConfigurableApplicationContext context;
+    private final int iterations;
+    private final boolean batchRun;
+    private final Map<String, Callable<?>> queries = new LinkedHashMap<>();
+    private final Map<String, Callable<?>> serializations = new LinkedHashMap<>();
+
+    private volatile WarmupReport report;
+
+    public ApplicationWarmup(
+        DataSource dataSource,
+        PlatformTransactionManager transactionManager,
+        WarmupStatementRecorder recorder,
+        ConfigurableApplicationContext context,
+        CustomerRepository customers,
+        ClientRepository clients,
+        GeneralTestingRepository generalTestings,
+        TxDemoRecordRepository txDemoRecords,
+        GeneralTestingSparseFinder sparseFinder,
+        ObjectMapper objectMapper,
+        @Value("${jpa-demo.warmup.iterations:200}") int iterations
+    ) {
+        this.dataSource = dataSource;
+        this.rollbackOnly = new TransactionTemplate(transactionManager);
+        this.rollbackOnly.setReadOnly(true);
+        this.recorder = recorder;
+        this.context = context;
+        this.iterations = iterations;
+        this.batchRun = context.getEnvironment().containsProperty("jpa-demo.export.file")
+            || context.getEnvironment().containsProperty("jpa-demo.import.file");
+
+        Date epoch = new Date(0);
+        queries.put("CustomerRepository.findByLastName", () -> customers.findByLastName(NO_STRING_ID));
+        queries.put("CustomerRepository.findById", () -> customers.findById(NO_LONG_ID));
+        queries.put("CustomerRepository.findAllByIdIn", () -> customers.findAllByIdIn(List.of(NO_LONG_ID)));
+        queries.put("CustomerRepository.findByIdNative", () -> customers.findByIdNative(NO_LONG_ID));
+        queries.put("CustomerRepository.findByIdForUpdate", () -> customers.findByIdForUpdate(NO_LONG_ID));
+        queries.put("ClientRepository.findByLastName", () -> clients.findByLastName(NO_STRING_ID));
+        queries.put("ClientRepository.findById", () -> clients.findById(NO_LONG_ID));
+        queries.put("ClientRepository.findAllByIdIn", () -> clients.findAllByIdIn(List.of(NO_LONG_ID)));
+        queries.put("ClientRepository.findByIdNative", () -> clients.findByIdNative(NO_LONG_ID));
+        queries.put("GeneralTestingRepository.findById", () -> generalTestings.findById(NO_STRING_ID));
+        queries.put("GeneralTestingRepository.findAllByIdIn", () -> generalTestings.findAllByIdIn(List.of(NO_STRING_ID)));
+        queries.put("GeneralTestingRepository.findTableVersion", generalTestings::findTableVersion);
+        queries.put("GeneralTestingRepository.findUpdateDateById", () -> generalTestings.findUpdateDateById(NO_STRING_ID));
+        queries.put("GeneralTestingRepository.findIdsCreatedBefore",
+            () -> generalTestings.findIdsCreatedBefore(epoch, PageRequest.of(0, 1)));
+        queries.put("GeneralTestingRepository.findChangedAfter",
+            () -> generalTestings.findChangedAfter(epoch, NO_STRING_ID, epoch, PageRequest.of(0, 1)));
+        queries.put("GeneralTestingRepository.findStoredPayloadsAfter",
+            () -> generalTestings.findStoredPayloadsAfter(NO_STRING_ID, PageRequest.of(0, 1)));
+        queries.put("GeneralTestingRepository.findRollupKeysOf", () -> generalTestings.findRollupKeysOf(List.of(NO_STRING_ID)));
+        queries.put("TxDemoRecordRepository.findAllTags", txDemoRecords::findAllTags);
+        queries.put("TxDemoRecordRepository.findIds", () -> txDemoRecords.findIds(PageRequest.of(0, 1)));
+        queries.put("GeneralTestingSparseFinder.findFirst",
+            () -> sparseFinder.findFirst(GeneralTestingFieldSet.DEFAULT, 1));
+        serializations.put("json GeneralTesting", () -> objectMapper.writeValueAsBytes(new GeneralTesting()));
+        serializations.put("json Customer", () -> objectMapper.writeValueAsBytes(new Customer(NO_STRING_ID, NO_STRING_ID)));
+        serializations.put("json Client", () -> objectMapper.writeValueAsBytes(new Client(NO_STRING_ID, NO_STRING_ID)));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (batchRun) {
+            log.info("Warm-up skipped, the application runs an export or import");
+            return;
+        }
+        StartupStep step = context.getApplicationStartup().start("jpa-demo.warmup");
+        long start = System.nanoTime();
+
+        recorder.start();
+        Map<String, Duration> cold;
+        Set<String> statements;
+        try {
+            cold = runCalls();
+        } finally {
+            statements = recorder.stop();
+        }
+        int connections = prepareOnPooledConnections(statements);
+        for (int i = 1; i < iterations; i++) {
+            runCalls();
+        }
+        Map<String, Duration> warm = runCalls();
+
+        report = new WarmupReport(Duration.ofNanos(System.nanoTime() - start), connections, statements.size(),
+            iterations, cold, warm);
+        step.tag("elapsed", report.elapsed().toMillis() + "ms")
+            .tag("connections", String.valueOf(connections))
+            .tag("statements", String.valueOf(statements.size()))
+            .end();
+        log.info("Warm-up finished: {}", report);
+        cold.forEach((name, latency) -> log.info("  {} us cold, {} us warm  {}",
+            latency.toNanos() / 1_000, warm.getOrDefault(name, Duration.ZERO).toNanos() / 1_000, name));
+    }
+
+    public WarmupReport getReport() {
+        return report;
+    }
+
+    /**
+     * One run of every call still working; a call that fails is logged and dropped from later rounds.
+     */
+    private Map<String, Duration> runCalls() {
+        Map<String, Duration> latencies = new LinkedHashMap<>();
+        runCalls(queries, true, latencies);
+        runCalls(serializations, false, latencies);
+        return latencies;
+    }
+
+    private void runCalls(Map<String, Callable<?>> calls, boolean transactional, Map<String, Duration> latencies) {
+        List<String> failed = new ArrayList<>();
+        calls.forEach((name, call) -> {
+            long start = System.nanoTime();
+            try {
+                if (transactional) {
+                    rollbackOnly.executeWithoutResult(status -> {
+                        status.setRollbackOnly();
+                        call(call);
+                    });
+                } else {
+                    call(call);
+                }
+                latencies.put(name, Duration.ofNanos(System.nanoTime() - start));
+            } catch (RuntimeException e) {
+                log.warn("Warm-up call {} failed, skipping it", name, e);
+                failed.add(name);
+            }
+        });
+        failed.forEach(calls::remove);
+    }
+
+    private static void call(Callable<?> call) {
+        try {
+            call.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int prepareOnPooledConnections(Collection<String> statements) {
+        int target = 1;
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                target = Math.max(1, Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize() - 1));
+            }
+        } catch (SQLException e) {
+            log.debug("Pool size unknown, warming a single connection", e);
+        }
+
+        List<Connection> held = new ArrayList<>(target);
+        try {
+            while (held.size() < target) {
+                Connection connection = dataSource.getConnection();
+                held.add(connection);
+                for (String sql : statements) {
+                    try (PreparedStatement ignored = connection.prepareStatement(sql)) {
+                        // closing keeps it in the driver's statement cache
+                    } catch (SQLException e) {
+                        log.debug("Could not prepare {}", sql, e);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Warm-up opened only {} of {} connections", held.size(), target, e);
+        } finally {
+            for (Connection connection : held) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Closing warm-up connection failed", e);
+                }
+            }
+        }
+        return held.size();
+    }
+}
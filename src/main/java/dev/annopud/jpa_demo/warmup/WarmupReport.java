@@ -0,0 +1,24 @@
+package dev.annopud.jpa_demo.warmup;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Outcome of {@link ApplicationWarmup}: total time, connections opened and prepared, distinct statements, rounds
+ * of synthetic calls, and the latency of each call on its first (cold) and last (warm) run.
+ */
+public record WarmupReport(
+    Duration elapsed,
+    int connections,
+    int statements,
+    int iterations,
+    Map<String, Duration> coldLatency,
+    Map<String, Duration> warmLatency
+) {
+
+    @Override
+    public String toString() {
+        return "%d ms, %d connections, %d statements prepared on each, %d rounds of %d calls".formatted(
+            elapsed.toMillis(), connections, statements, iterations, coldLatency.size());
+    }
+}
@@ -0,0 +1,46 @@
+package dev.annopud.jpa_demo.warmup;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the distinct SQL Hibernate sends while {@link ApplicationWarmup} records, so it can be prepared on
+ * every pooled connection. Outside the recording window it costs one volatile read per statement.
+ */
+@Component
+@ConditionalOnProperty(name = "jpa-demo.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupStatementRecorder implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private volatile Set<String> recording;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Set<String> statements = recording;
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    void start() {
+        recording = ConcurrentHashMap.newKeySet();
+    }
+
+    Set<String> stop() {
+        Set<String> statements = recording;
+        recording = null;
+        return statements != null ? statements : Set.of();
+    }
+}
@@ -0,0 +1,10 @@
+-- Table-backed sequence for TxDemoRecord ids (MySQL has no native sequences).
+-- Hibernate's pooled optimizer hands out the block [next_val - 49, next_val], so start 51 above the
+-- current max id to stay clear of rows inserted through AUTO_INCREMENT.
+DROP TABLE IF EXISTS tx_demo_record_seq;
+
+CREATE TABLE tx_demo_record_seq (
+  next_val BIGINT
+) COMMENT='Id allocator for tx_demo_record, allocationSize = 50';
+
+INSERT INTO tx_demo_record_seq (next_val) SELECT COALESCE(MAX(id), 0) + 51 FROM tx_demo_record;
@@ -0,0 +1,3 @@
+-- Optimistic locking columns for Customer and Client (@Version)
+ALTER TABLE customer ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE client ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,23 @@
+-- Keyset index for the retention job: oldest rows first, id as tiebreaker
+CREATE INDEX idx_general_testing_create_date ON general_testing (create_date, id);
+
+DROP TABLE IF EXISTS general_testing_archive;
+
+CREATE TABLE general_testing_archive (
+  id VARCHAR(32) NOT NULL COMMENT 'Case ID',
+  type INT NOT NULL COMMENT 'Case type',
+  email_from VARCHAR(255) NOT NULL COMMENT 'Notification email from addresses',
+  email_to VARCHAR(255) NOT NULL COMMENT 'Notification email to addresses',
+  email_cc VARCHAR(255) DEFAULT NULL COMMENT 'Notification email cc addresses',
+  email_bcc VARCHAR(255) DEFAULT NULL COMMENT 'Notification email bcc addresses',
+  email_submit_param LONGBLOB DEFAULT NULL COMMENT 'Submission param as JSON',
+  email_error TEXT DEFAULT NULL COMMENT 'Notification email error detail',
+  email_status ENUM('S','E') DEFAULT NULL COMMENT 'Notification email send status (S=Success; E=Error)',
+  email_date DATETIME DEFAULT NULL COMMENT 'Notification email send date',
+  create_by VARCHAR(6) NOT NULL,
+  create_date DATETIME NOT NULL,
+  update_by VARCHAR(6) DEFAULT NULL,
+  update_date DATETIME DEFAULT NULL,
+  archived_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+) COMMENT='Rows moved out of general_testing by the retention job';
@@ -0,0 +1,4 @@
+-- Change feed: every row gets an update_date (new rows set it on insert) and is read in (update_date, id) order
+UPDATE general_testing SET update_date = create_date WHERE update_date IS NULL;
+
+CREATE INDEX idx_general_testing_update_date ON general_testing (update_date, id);
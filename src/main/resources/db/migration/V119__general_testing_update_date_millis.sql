@@ -0,0 +1,4 @@
+-- ETags and Last-Modified of /mypath are derived from update_date; at second precision two updates within the
+-- same second left them unchanged and clients got stale 304s
+ALTER TABLE general_testing MODIFY update_date DATETIME(3) DEFAULT NULL;
+ALTER TABLE general_testing_archive MODIFY update_date DATETIME(3) DEFAULT NULL;
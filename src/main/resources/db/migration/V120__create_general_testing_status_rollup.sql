@@ -0,0 +1,15 @@
+-- Pre-aggregated general_testing row counts for GET /mypath/stats, maintained incrementally by the application
+DROP TABLE IF EXISTS general_testing_status_rollup;
+
+CREATE TABLE general_testing_status_rollup (
+  email_status VARCHAR(1) NOT NULL COMMENT 'Email status code, empty when not set',
+  type INT NOT NULL COMMENT 'Case type',
+  email_day DATE NOT NULL COMMENT 'Day of email_date, 1000-01-01 when not set',
+  row_count BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (email_day, email_status, type)
+) COMMENT='general_testing row counts by email status, type and day';
+
+INSERT INTO general_testing_status_rollup (email_status, type, email_day, row_count)
+SELECT COALESCE(g.email_status, ''), g.type, COALESCE(CAST(g.email_date AS DATE), DATE '1000-01-01'), COUNT(*)
+FROM general_testing AS g
+GROUP BY COALESCE(g.email_status, ''), g.type, COALESCE(CAST(g.email_date AS DATE), DATE '1000-01-01');
@@ -0,0 +1,70 @@
+package dev.annopud.jpa_demo.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+class AimdLimitTest {
+
+    @Test
+    void testRejectsAboveLimit() {
+        AimdLimit limit = new AimdLimit(2, 1, 10, 2.0, 0.5);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void testSlowDatabaseShrinksLimit() {
+        AimdLimit limit = new AimdLimit(8, 2, 10, 2.0, 0.5);
+        sample(limit, 1_000_000);
+
+        sample(limit, 10_000_000);
+        assertThat(limit.getLimit()).isEqualTo(4);
+        sample(limit, 10_000_000);
+        sample(limit, 10_000_000);
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void testHealthyDatabaseGrowsUsedLimit() {
+        AimdLimit limit = new AimdLimit(2, 1, 10, 2.0, 0.5);
+        sample(limit, 1_000_000);
+
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release(1_000_000);
+            limit.release(1_000_000);
+        }
+        assertThat(limit.getLimit()).isGreaterThan(2);
+    }
+
+    @Test
+    void testLimitRecoversAfterLastingSlowdown() {
+        AimdLimit limit = new AimdLimit(8, 2, 10, 2.0, 0.5);
+        // a cheap request seeds the baseline, then every request is ten times slower
+        sample(limit, 100_000);
+        for (int i = 0; i < 20; i++) {
+            sample(limit, 1_000_000);
+        }
+        assertThat(limit.getLimit()).isEqualTo(2);
+
+        for (int i = 0; i < 500; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release(1_000_000);
+            limit.release(1_000_000);
+        }
+        assertThat(limit.getBaselineNanos()).isCloseTo(1_000_000, withinPercentage(5));
+        assertThat(limit.getLimit()).isGreaterThan(2);
+    }
+
+    private static void sample(AimdLimit limit, long dbNanos) {
+        limit.tryAcquire();
+        limit.release(dbNanos);
+    }
+}
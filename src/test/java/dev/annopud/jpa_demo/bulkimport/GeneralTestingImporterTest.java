@@ -0,0 +1,152 @@
+package dev.annopud.jpa_demo.bulkimport;
+
+import dev.annopud.jpa_demo.converter.PayloadCodec;
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.service.GeneralTestingChangeFeed;
+import dev.annopud.jpa_demo.service.GeneralTestingStatusRollups;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({GeneralTestingImporter.class, GeneralTestingStatusRollups.class, GeneralTestingChangeFeed.class})
+@TestPropertySource(properties = {"jpa-demo.import.batch-size=3", "jpa-demo.change-feed.settle-time=200ms"})
+class GeneralTestingImporterTest {
+
+    @Autowired
+    private GeneralTestingImporter importer;
+
+    @Autowired
+    private GeneralTestingStatusRollups rollups;
+
+    @Autowired
+    private GeneralTestingChangeFeed changeFeed;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM general_testing");
+        rollups.rebuild();
+    }
+
+    @Test
+    void testValidRecordsAreImportedAndInvalidOnesReported() throws Exception {
+        String payload = Base64.getEncoder().encodeToString("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+        String input = String.join("\n",
+            record("IMP1", "\"emailStatus\":\"S\",\"emailDate\":\"2025-10-15T10:36:43.919+07:00\",\"emailSubmitParam\":\"" + payload + "\""),
+            record("IMP2", "\"emailStatus\":\"X\""),
+            "",
+            "{not json",
+            record("IMP3", "\"createDate\":1760499403919"),
+            "{\"id\":\"IMP4\",\"type\":1,\"emailTo\":\"to@example.com\",\"createBy\":\"test\"}",
+            record("IMP5", "\"emailStatus\":\"E\""),
+            record("IMP1", "\"emailStatus\":\"S\""),
+            record("IMP6", "\"emailDate\":\"2025-10-15T10:36:43\""));
+        List<ImportError> sink = new ArrayList<>();
+
+        ImportReport report = importer.importNdjson(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), sink::add);
+
+        assertThat(report.records()).isEqualTo(8);
+        assertThat(report.imported()).isEqualTo(4);
+        assertThat(report.failed()).isEqualTo(4);
+        assertThat(sink).isEqualTo(report.errors());
+        assertThat(sink).extracting(ImportError::line).containsExactly(2L, 4L, 6L, 8L);
+        assertThat(sink).extracting(ImportError::id).containsExactly("IMP2", null, "IMP4", "IMP1");
+        assertThat(sink.get(2).message()).isEqualTo("emailFrom is required");
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM general_testing ORDER BY id", String.class))
+            .containsExactly("IMP1", "IMP3", "IMP5", "IMP6");
+        byte[] stored = jdbcTemplate.queryForObject(
+            "SELECT email_submit_param FROM general_testing WHERE id = 'IMP1'", byte[].class);
+        assertThat(new String(PayloadCodec.decode(stored), StandardCharsets.UTF_8)).isEqualTo("{\"a\":1}");
+        assertThat(rollups.stats(LocalDate.of(1000, 1, 1), LocalDate.of(9999, 12, 31)))
+            .extracting(GeneralTestingStatusRollups.StatusCount::count)
+            .containsExactly(1L, 1L, 1L, 1L);
+    }
+
+    /**
+     * The first record waits in a batch while another row commits and a change feed reader moves past it; the
+     * imported rows must still come after the reader's watermark.
+     */
+    @Test
+    void testImportedRowsAreSeenByTheChangeFeed() throws Exception {
+        String[] watermark = new String[1];
+        InputStream pause = new InputStream() {
+            @Override
+            public int read() {
+                if (watermark[0] == null) {
+                    Timestamp now = new Timestamp(System.currentTimeMillis());
+                    new JdbcTemplate(dataSource).update("""
+                            INSERT INTO general_testing (id, type, email_from, email_to, create_by, create_date, update_date)
+                            VALUES ('CF-MARK', 1, 'from@example.com', 'to@example.com', 'TEST', ?, ?)""", now, now);
+                    sleep(400);
+                    GeneralTestingChangeFeed.Page page = changeFeed.changesSince(null, 500);
+                    assertThat(page.items()).extracting(GeneralTesting::getId).contains("CF-MARK");
+                    watermark[0] = page.watermark();
+                }
+                return -1;
+            }
+        };
+        InputStream input = new SequenceInputStream(Collections.enumeration(List.of(
+            lines(record("IMP1", "\"emailStatus\":\"S\"")),
+            pause,
+            lines(record("IMP2", "\"emailStatus\":\"S\""), record("IMP3", "\"emailStatus\":\"S\"")))));
+
+        assertThat(importer.importNdjson(input, error -> { }).imported()).isEqualTo(3);
+        assertThat(watermark[0]).isNotNull();
+
+        sleep(400);
+        assertThat(changeFeed.changesSince(watermark[0], 500).items())
+            .extracting(GeneralTesting::getId)
+            .containsExactly("IMP1", "IMP2", "IMP3");
+    }
+
+    private static InputStream lines(String... lines) {
+        return new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String record(String id, String extra) {
+        return "{\"id\":\"" + id + "\",\"type\":1,\"emailFrom\":\"from@example.com\",\"emailTo\":\"to@example.com\","
+            + "\"createBy\":\"test\"," + extra + "}";
+    }
+}
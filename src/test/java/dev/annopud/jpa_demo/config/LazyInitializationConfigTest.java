@@ -0,0 +1,43 @@
+package dev.annopud.jpa_demo.config;
+
+import dev.annopud.jpa_demo.flush.FlushStatistics;
+import dev.annopud.jpa_demo.jfr.JfrFlushListeners;
+import dev.annopud.jpa_demo.metrics.LoadMetricsListener;
+import dev.annopud.jpa_demo.service.CustomerNameIndex;
+import dev.annopud.jpa_demo.service.GeneralTestingStatusRollups;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts a lazily initialised context in which nothing depends on the listener beans, so only the exclude filter
+ * gets them created.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@TestPropertySource(properties = "spring.main.lazy-initialization=true")
+@Import({LazyInitializationConfig.class, FlushStatistics.class, LoadMetricsListener.class,
+    JfrFlushListeners.class, CustomerNameIndex.class, GeneralTestingStatusRollups.class})
+class LazyInitializationConfigTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @ParameterizedTest
+    @ValueSource(classes = {FlushStatistics.class, LoadMetricsListener.class, JfrFlushListeners.class,
+        CustomerNameIndex.class, GeneralTestingStatusRollups.class})
+    void testListenerBeansAreCreatedAtStartup(Class<?> type) {
+        assertThat(beanFactory.getBeanNamesForType(type))
+            .singleElement()
+            .matches(beanFactory::containsSingleton);
+    }
+}
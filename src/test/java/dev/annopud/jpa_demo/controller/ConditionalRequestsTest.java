@@ -0,0 +1,90 @@
+package dev.annopud.jpa_demo.controller;
+
+import dev.annopud.jpa_demo.service.ResourceVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionalRequestsTest {
+
+    private static final ResourceVersion VERSION = new ResourceVersion("3-1760000000123", 1760000000123L);
+
+    private final AtomicInteger bodyCalls = new AtomicInteger();
+
+    @Test
+    void testFirstRequestGetsBodyAndValidators() {
+        ResponseEntity<String> response = ConditionalRequests.respond(new MockHttpServletRequest(), VERSION, this::body);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("body");
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"3-1760000000123\"");
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(1760000000000L);
+    }
+
+    @Test
+    void testMatchingEtagSkipsBody() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/mypath");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"3-1760000000123\"");
+
+        ResponseEntity<String> response = ConditionalRequests.respond(request, VERSION, this::body);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(bodyCalls).hasValue(0);
+    }
+
+    @Test
+    void testStaleEtagWinsOverIfModifiedSince() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"2-1760000000000\"");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, 1760000000000L);
+
+        assertThat(ConditionalRequests.respond(request, VERSION, this::body).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void testIfModifiedSinceComparesWholeSeconds() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, 1760000000000L);
+
+        assertThat(ConditionalRequests.respond(request, VERSION, this::body).getStatusCode())
+            .isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void testBodyLoadedSeparatelyCarriesItsOwnValidators() {
+        ResourceVersion older = new ResourceVersion("2-1759999999000", 1759999999000L);
+
+        ResponseEntity<String> response = ConditionalRequests.respond(new MockHttpServletRequest(), VERSION, this::body,
+            body -> Optional.of(older));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"2-1759999999000\"");
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(1759999999000L);
+    }
+
+    @Test
+    void testNotModifiedIsDecidedOnTheCurrentVersion() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"3-1760000000123\"");
+
+        ResponseEntity<String> response = ConditionalRequests.respond(request, VERSION, this::body,
+            body -> Optional.empty());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"3-1760000000123\"");
+        assertThat(bodyCalls).hasValue(0);
+    }
+
+    private String body() {
+        bodyCalls.incrementAndGet();
+        return "body";
+    }
+}
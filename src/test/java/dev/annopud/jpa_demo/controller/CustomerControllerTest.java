@@ -0,0 +1,35 @@
+package dev.annopud.jpa_demo.controller;
+
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import dev.annopud.jpa_demo.service.BatchFinder;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.lang.reflect.Proxy;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CustomerControllerTest {
+
+    private final CustomerRepository noQueries = (CustomerRepository) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[]{CustomerRepository.class}, (proxy, method, args) -> {
+            throw new AssertionError("Unexpected query " + method.getName());
+        });
+
+    private final BatchFinder batchFinder = new BatchFinder(noQueries, null, null, 2, 2);
+
+    private final MockMvc mockMvc = MockMvcBuilders
+        .standaloneSetup(new CustomerController(null, batchFinder, null))
+        .build();
+
+    @Test
+    void testBatchOfTooManyIdsIsBadRequest() throws Exception {
+        mockMvc.perform(post("/customers/batch").contentType(MediaType.APPLICATION_JSON).content("[1, 2, 3]"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("At most 2 ids per lookup, got 3"));
+    }
+}
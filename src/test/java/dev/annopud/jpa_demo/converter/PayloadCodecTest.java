@@ -0,0 +1,46 @@
+package dev.annopud.jpa_demo.converter;
+
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadCodecTest {
+
+    private static final byte[] LARGE_JSON = ("{\"recipients\":[" + "\"someone@example.com\",".repeat(50) + "\"last@example.com\"]}")
+        .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testLargePayloadIsCompressedAndRoundTrips() {
+        byte[] stored = PayloadCodec.encode(LARGE_JSON);
+
+        assertThat(PayloadCodec.isCompressed(stored)).isTrue();
+        assertThat(stored.length).isLessThan(LARGE_JSON.length / 4);
+        assertThat(PayloadCodec.decode(stored)).isEqualTo(LARGE_JSON);
+    }
+
+    @Test
+    void testSmallPayloadIsStoredRaw() {
+        byte[] json = "{\"to\":\"a@example.com\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(PayloadCodec.encode(json)).isSameAs(json);
+    }
+
+    @Test
+    void testLegacyRawValueIsReadAsIs() {
+        assertThat(PayloadCodec.decode(LARGE_JSON)).isSameAs(LARGE_JSON);
+        assertThat(PayloadCodec.decode(null)).isNull();
+    }
+
+    @Test
+    void testEntityDecodesOnFirstAccessOnly() {
+        GeneralTesting entity = new GeneralTesting();
+        entity.setEmailSubmitParam(LARGE_JSON);
+        long decodes = PayloadCodec.getDecodes();
+
+        assertThat(entity.getEmailSubmitParam()).isSameAs(LARGE_JSON);
+        assertThat(PayloadCodec.getDecodes()).isEqualTo(decodes);
+    }
+}
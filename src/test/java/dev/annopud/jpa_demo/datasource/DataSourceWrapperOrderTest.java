@@ -0,0 +1,51 @@
+package dev.annopud.jpa_demo.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.annopud.jpa_demo.jfr.JfrDataSource;
+import dev.annopud.jpa_demo.jfr.JfrDataSourcePostProcessor;
+import dev.annopud.jpa_demo.observation.ObservedDataSource;
+import dev.annopud.jpa_demo.observation.ObservedDataSourcePostProcessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The post processors are imported in the reverse of their order, the nesting must not depend on it.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles({"h2", "latency"})
+@ImportAutoConfiguration(PropertyPlaceholderAutoConfiguration.class)
+@Import({PoolDeadlockDetectorPostProcessor.class, ObservedDataSourcePostProcessor.class,
+    JfrDataSourcePostProcessor.class, LatencyInjectingDataSourcePostProcessor.class})
+class DataSourceWrapperOrderTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testWrappersNestInOrder() {
+        List<Class<?>> chain = new ArrayList<>();
+        DataSource current = dataSource;
+        while (current instanceof DelegatingDataSource delegating) {
+            chain.add(current.getClass());
+            current = delegating.getTargetDataSource();
+        }
+        chain.add(current.getClass());
+
+        assertThat(chain).containsExactly(PoolDeadlockDetector.class, ObservedDataSource.class, JfrDataSource.class,
+            LatencyInjectingDataSource.class, HikariDataSource.class);
+    }
+}
@@ -0,0 +1,89 @@
+package dev.annopud.jpa_demo.datasource;
+
+import dev.annopud.jpa_demo.entity.TxDemoRecord;
+import dev.annopud.jpa_demo.repository.TxDemoRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+    "jpa-demo.latency.distribution=FIXED",
+    "jpa-demo.latency.round-trip=20ms",
+    "jpa-demo.latency.per-row=5ms"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles({"h2", "latency"})
+@Import(LatencyInjectingDataSourcePostProcessor.class)
+class LatencyInjectingDataSourceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TxDemoRecordRepository records;
+
+    private LatencyInjectingDataSource latency;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        latency = dataSource.unwrap(LatencyInjectingDataSource.class);
+        for (String tag : new String[]{"a", "b", "c"}) {
+            TxDemoRecord record = new TxDemoRecord();
+            record.setTag(tag);
+            record.setCreateDate(new Date());
+            entityManager.persist(record);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        latency.resetCounters();
+    }
+
+    @Test
+    void testQueryPaysOneRoundTripPlusRows() {
+        long start = System.nanoTime();
+        assertThat(records.findAllTags()).hasSize(3);
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(latency.getRoundTrips()).isEqualTo(1);
+        assertThat(latency.getRows()).isEqualTo(3);
+        assertThat(latency.getInjectedLatency()).isEqualTo(Duration.ofMillis(35));
+        assertThat(took).isGreaterThanOrEqualTo(Duration.ofMillis(35));
+    }
+
+    @Test
+    void testEveryFindByIdIsARoundTrip() {
+        records.findIds(PageRequest.ofSize(3))
+            .forEach(id -> records.findById(id));
+
+        assertThat(latency.getRoundTrips()).isEqualTo(4);
+    }
+
+    @Test
+    void testProxiesAreEqualOnlyToThemselves() throws SQLException {
+        try (Connection connection = latency.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            assertThat(connection).isEqualTo(connection);
+            assertThat(connection.hashCode()).isEqualTo(System.identityHashCode(connection));
+            assertThat(statement).isEqualTo(statement);
+            assertThat(statement.hashCode()).isEqualTo(System.identityHashCode(statement));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dev.annopud.jpa_demo.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the detector on a Hikari pool of two H2 connections, so that holding both exhausts it.
+ */
+class PoolDeadlockDetectorTest {
+
+    private HikariDataSource pool;
+
+    @BeforeEach
+    void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:pool-deadlock;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(2);
+        config.setConnectionTimeout(250);
+        pool = new HikariDataSource(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testHeldCountFollowsOpenConnections() throws Exception {
+        PoolDeadlockDetector detector = new PoolDeadlockDetector(pool, PoolDeadlockDetector.Mode.WARN, Duration.ofSeconds(1));
+
+        try (Connection outer = detector.getConnection()) {
+            assertThat(detector.getNestedAcquisitions()).isZero();
+            Connection inner = detector.getConnection();
+            assertThat(detector.getNestedAcquisitions()).isEqualTo(1);
+            inner.close();
+            // a second close must not release the outer connection's count
+            inner.close();
+            detector.getConnection().close();
+            assertThat(detector.getNestedAcquisitions()).isEqualTo(2);
+        }
+
+        detector.getConnection().close();
+        assertThat(detector.getAcquisitions()).isEqualTo(4);
+        assertThat(detector.getNestedAcquisitions()).isEqualTo(2);
+        assertThat(detector.getNestedOnExhaustedPool()).isZero();
+    }
+
+    @Test
+    void testNestedAcquisitionOnExhaustedPoolFailsFastInFailMode() throws Exception {
+        PoolDeadlockDetector detector = new PoolDeadlockDetector(pool, PoolDeadlockDetector.Mode.FAIL, Duration.ofSeconds(1));
+
+        try (Connection outer = detector.getConnection(); Connection inner = detector.getConnection()) {
+            long start = System.nanoTime();
+            assertThatThrownBy(detector::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("possible REQUIRES_NEW pool deadlock");
+            // rejected before asking the pool, which would wait for the connection timeout
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(250));
+            assertThat(detector.getNestedOnExhaustedPool()).isEqualTo(1);
+        }
+
+        // the rejected call took nothing, the next one is not nested
+        detector.getConnection().close();
+        assertThat(detector.getNestedAcquisitions()).isEqualTo(2);
+    }
+
+    @Test
+    void testNestedAcquisitionOnExhaustedPoolOnlyWarnsInWarnMode() throws Exception {
+        PoolDeadlockDetector detector = new PoolDeadlockDetector(pool, PoolDeadlockDetector.Mode.WARN, Duration.ofSeconds(1));
+
+        try (Connection outer = detector.getConnection(); Connection inner = detector.getConnection()) {
+            // the pool itself times out, the detector only counted the attempt
+            assertThatThrownBy(detector::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageNotContaining("REQUIRES_NEW");
+            assertThat(detector.getNestedOnExhaustedPool()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testConnectionProxiesAreEqualOnlyToThemselves() throws Exception {
+        PoolDeadlockDetector detector = new PoolDeadlockDetector(pool, PoolDeadlockDetector.Mode.WARN, Duration.ofSeconds(1));
+
+        try (Connection first = detector.getConnection(); Connection second = detector.getConnection()) {
+            Set<Connection> connections = new HashSet<>(Set.of(first, second));
+
+            assertThat(first).isEqualTo(first).isNotEqualTo(second);
+            assertThat(connections).hasSize(2).contains(first, second);
+            assertThat(first.hashCode()).isEqualTo(System.identityHashCode(first));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package dev.annopud.jpa_demo.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeneralTestingTest {
+
+    @Test
+    void testEveryUpdateMovesUpdateDate() {
+        GeneralTesting row = new GeneralTesting();
+        row.onCreate();
+        Date created = row.getUpdateDate();
+
+        row.onUpdate();
+        Date first = row.getUpdateDate();
+        row.onUpdate();
+        Date second = row.getUpdateDate();
+
+        assertThat(first).isAfter(created);
+        assertThat(second).isAfter(first);
+    }
+
+    @Test
+    void testUpdateDateAheadOfClockStillMoves() {
+        GeneralTesting row = new GeneralTesting();
+        Date ahead = new Date(System.currentTimeMillis() + 60_000);
+        row.setUpdateDate(ahead);
+
+        row.onUpdate();
+
+        assertThat(row.getUpdateDate().getTime()).isEqualTo(ahead.getTime() + 1);
+    }
+}
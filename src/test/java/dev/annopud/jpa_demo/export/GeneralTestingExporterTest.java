@@ -0,0 +1,103 @@
+package dev.annopud.jpa_demo.export;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(GeneralTestingExporter.class)
+class GeneralTestingExporterTest {
+
+    private static final int ROWS = 250;
+
+    @Autowired
+    private GeneralTestingExporter exporter;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO general_testing (id, type, email_from, email_to, email_status, create_by, create_date,
+                    update_date, email_submit_param)
+                VALUES (?, 1, 'from@example.com', 'to@example.com', 'S', 'test', ?, ?, ?)""",
+            IntStream.range(0, ROWS).mapToObj(i -> new Object[]{
+                "CASE%05d".formatted(i), now, now, i % 2 == 0 ? ("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8) : null
+            }).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM general_testing");
+    }
+
+    @Test
+    void testExportedFileReadsBackEveryRow(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("general_testing.gtx");
+
+        ExportReport report = exporter.export(file);
+
+        assertThat(report.rows()).isEqualTo(ROWS);
+        assertThat(report.rowsPerPartition()).hasSize(4);
+        List<ExportedRow> rows = new ArrayList<>();
+        GeneralTestingExportReader.Summary summary = GeneralTestingExportReader.read(file, rows::add);
+        assertThat(summary.rows()).isEqualTo(ROWS);
+        assertThat(summary.bytes()).isEqualTo(report.bytes());
+        assertThat(rows).extracting(ExportedRow::id).doesNotHaveDuplicates().contains("CASE00000", "CASE00249");
+        ExportedRow row = rows.stream().filter(r -> r.id().equals("CASE00042")).findFirst().orElseThrow();
+        assertThat(new String(row.emailSubmitParam(), StandardCharsets.UTF_8)).isEqualTo("{\"n\":42}");
+        assertThat(row.emailStatus()).isEqualTo("S");
+        assertThat(row.emailDate()).isNull();
+    }
+
+    @Test
+    void testVerifyDetectsCorruption(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("general_testing.gtx");
+        exporter.export(file);
+
+        flipByte(file, 100);
+
+        assertThatThrownBy(() -> GeneralTestingExportReader.verify(file)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.put(0, (byte) ~one.get(0)).rewind();
+            channel.write(one, position);
+        }
+    }
+}
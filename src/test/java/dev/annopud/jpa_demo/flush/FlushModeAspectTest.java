@@ -0,0 +1,103 @@
+package dev.annopud.jpa_demo.flush;
+
+import dev.annopud.jpa_demo.config.TransactionConfig;
+import jakarta.persistence.EntityManager;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link FlushModeAspect} with the transaction advisor ordered by {@link TransactionConfig}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+@Import({TransactionConfig.class, FlushModeTemplate.class, FlushModeAspect.class, FlushModeAspectTest.Target.class})
+class FlushModeAspectTest {
+
+    @Autowired
+    private Target target;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testModeIsSetOnTheTransactionTheMethodOpens() {
+        assertThat(target.transactional()).isEqualTo(FlushMode.MANUAL);
+        assertThat(target.modeAtCommit()).isEqualTo(FlushMode.MANUAL);
+    }
+
+    @Test
+    void testModeIsRestoredWhenJoiningATransaction() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            session.setHibernateFlushMode(FlushMode.AUTO);
+
+            assertThat(target.transactional()).isEqualTo(FlushMode.MANUAL);
+            assertThat(target.joining()).isEqualTo(FlushMode.MANUAL);
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.AUTO);
+        });
+    }
+
+    @Test
+    void testNoTransactionIsStartedOutsideOne() {
+        assertThat(target.withoutTransaction()).isFalse();
+    }
+
+    static class Target {
+
+        @Autowired
+        private EntityManager entityManager;
+
+        private final AtomicReference<FlushMode> modeAtCommit = new AtomicReference<>();
+
+        @Transactional
+        @WithFlushMode(FlushMode.MANUAL)
+        public FlushMode transactional() {
+            Session session = entityManager.unwrap(Session.class);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    modeAtCommit.set(session.getHibernateFlushMode());
+                }
+            });
+            return session.getHibernateFlushMode();
+        }
+
+        public FlushMode modeAtCommit() {
+            return modeAtCommit.get();
+        }
+
+        @WithFlushMode(FlushMode.MANUAL)
+        public FlushMode joining() {
+            return entityManager.unwrap(Session.class).getHibernateFlushMode();
+        }
+
+        @WithFlushMode(FlushMode.MANUAL)
+        public boolean withoutTransaction() {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+    }
+}
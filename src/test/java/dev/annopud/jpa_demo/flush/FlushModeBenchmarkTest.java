@@ -0,0 +1,91 @@
+package dev.annopud.jpa_demo.flush;
+
+import dev.annopud.jpa_demo.entity.Client;
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.repository.ClientRepository;
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import dev.annopud.jpa_demo.service.CustomerService;
+import org.hibernate.FlushMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link CustomerService#experimentMethod()} workload under each flush mode and prints the time per
+ * transaction next to the flush counters.
+ * <p>
+ * With COMMIT and MANUAL the query in the workload no longer sees the customer saved just before it, so a
+ * "last2" customer is seeded up front to keep the workload from failing.
+ * <pre>
+ * ./mvnw test -Dtest=FlushModeBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FlushModeBenchmarkTest {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private FlushModeTemplate flushModeTemplate;
+
+    @Autowired
+    private FlushStatistics flushStatistics;
+
+    @BeforeEach
+    void seed() {
+        if (customerRepository.count() == 0) {
+            customerRepository.save(new Customer("first", "last2"));
+            clientRepository.save(new Client("first", "last"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = FlushMode.class, names = {"AUTO", "COMMIT", "MANUAL"})
+    void experimentMethod(FlushMode flushMode) throws Throwable {
+        for (int i = 0; i < WARMUP; i++) {
+            runOnce(flushMode);
+        }
+
+        FlushStatistics.Snapshot before = flushStatistics.snapshot();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            runOnce(flushMode);
+        }
+        long elapsed = System.nanoTime() - start;
+        FlushStatistics.Snapshot delta = flushStatistics.snapshot().minus(before);
+
+        System.out.printf("%-6s %8.1f us/tx  flushes/tx=%.2f dirtyChecked/tx=%.2f autoFlushChecks/tx=%.2f"
+                + " autoFlushes/tx=%.2f%n",
+            flushMode,
+            TimeUnit.NANOSECONDS.toMicros(elapsed) / (double) ITERATIONS,
+            delta.flushes() / (double) ITERATIONS,
+            delta.entitiesDirtyChecked() / (double) ITERATIONS,
+            delta.autoFlushChecks() / (double) ITERATIONS,
+            delta.autoFlushes() / (double) ITERATIONS);
+    }
+
+    private void runOnce(FlushMode flushMode) throws Throwable {
+        flushModeTemplate.execute(flushMode, () -> {
+            customerService.experimentMethod();
+            return null;
+        });
+    }
+}
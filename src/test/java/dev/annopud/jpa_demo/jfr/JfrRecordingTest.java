@@ -0,0 +1,179 @@
+package dev.annopud.jpa_demo.jfr;
+
+import dev.annopud.jpa_demo.config.TransactionConfig;
+import dev.annopud.jpa_demo.service.TransactionDemoService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Runs the {@link TransactionDemoService} {@code REQUIRES_NEW} and {@code NESTED} scenarios against the {@code h2}
+ * profile inside a JFR recording, and reads back the events the {@code jfr} package emitted.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration({AopAutoConfiguration.class, TransactionManagerCustomizationAutoConfiguration.class})
+@Import({TransactionConfig.class, TransactionDemoService.class, JfrTransactionListener.class,
+    JfrTransactionManagerPostProcessor.class, JfrFlushListeners.class, JfrDataSourcePostProcessor.class,
+    TransactionalListenerJfrAspect.class, JfrRecordingTest.Listener.class})
+class JfrRecordingTest {
+
+    @Autowired
+    private TransactionDemoService transactionDemoService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM tx_demo_record");
+    }
+
+    @Test
+    void testScenariosEmitEvents(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events = record(dir, () -> {
+            transactionDemoService.requiredRequiresNewCatch();
+            transactionDemoService.requiredNestedCatch();
+            new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> eventPublisher.publishEvent(new DemoEvent()));
+        });
+
+        // Hibernate's JpaDialect has no savepoints, so the nested transaction fails to begin
+        assertThat(ofType(events, TransactionJfrEvent.NAME))
+            .extracting(e -> shortName(e.getString("name")), e -> e.getString("kind"), e -> e.getString("outcome"))
+            .contains(
+                tuple("requiredRequiresNewCatch", "NEW", "COMMIT"),
+                tuple("innerRequiresNewThatThrows", "REQUIRES_NEW", "ROLLBACK"),
+                tuple("requiredNestedCatch", "NEW", "COMMIT"),
+                tuple("innerNestedThatThrows", "NESTED", "BEGIN_FAILED"));
+        assertThat(ofType(events, FlushJfrEvent.NAME)).isNotEmpty();
+        assertThat(ofType(events, ConnectionAcquireJfrEvent.NAME))
+            .isNotEmpty()
+            .allMatch(e -> e.getBoolean("success"));
+        assertThat(ofType(events, ConnectionReleaseJfrEvent.NAME)).isNotEmpty();
+        assertThat(ofType(events, TransactionalListenerJfrEvent.NAME))
+            .extracting(e -> e.getString("eventType"), e -> e.getString("phase"), e -> e.getBoolean("success"))
+            .containsExactly(tuple(DemoEvent.class.getName(), "AFTER_COMMIT", true));
+    }
+
+    /**
+     * A {@code REQUIRED} transaction begun inside a {@code SUPPORTS} scope suspends that scope's synchronizations
+     * but is still a plain new transaction.
+     */
+    @Test
+    void testKindFollowsThePropagationBehavior(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events = record(dir, () -> {
+            TransactionTemplate supports = template("supports", TransactionDefinition.PROPAGATION_SUPPORTS);
+            TransactionTemplate required = template("required", TransactionDefinition.PROPAGATION_REQUIRED);
+            TransactionTemplate requiresNew = template("requires-new", TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            supports.executeWithoutResult(outer -> required.executeWithoutResult(inner -> { }));
+            required.executeWithoutResult(outer -> requiresNew.executeWithoutResult(inner -> { }));
+        });
+
+        Map<String, List<String>> kinds = ofType(events, TransactionJfrEvent.NAME).stream()
+            .collect(Collectors.groupingBy(e -> e.getString("name"),
+                Collectors.mapping(e -> e.getString("kind"), Collectors.toList())));
+        assertThat(kinds)
+            .containsEntry("required", List.of("NEW", "NEW"))
+            .containsEntry("requires-new", List.of("REQUIRES_NEW"))
+            .doesNotContainKey("supports");
+    }
+
+    @Test
+    void testConnectionProxyIsEqualOnlyToItself(@TempDir Path dir) throws Exception {
+        record(dir, () -> {
+            try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+                assertThat(first).isEqualTo(first).isNotEqualTo(second);
+                assertThat(first.hashCode()).isEqualTo(System.identityHashCode(first));
+            }
+        });
+    }
+
+    private TransactionTemplate template(String name, int propagation) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setName(name);
+        template.setPropagationBehavior(propagation);
+        return template;
+    }
+
+    private static List<RecordedEvent> record(Path dir, Scenario scenario) throws Exception {
+        Path file = dir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(TransactionJfrEvent.class);
+            recording.enable(FlushJfrEvent.class);
+            recording.enable(ConnectionAcquireJfrEvent.class);
+            recording.enable(ConnectionReleaseJfrEvent.class);
+            recording.enable(TransactionalListenerJfrEvent.class);
+            recording.start();
+            scenario.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+    }
+
+    private static String shortName(String transactionName) {
+        return transactionName.substring(transactionName.lastIndexOf('.') + 1);
+    }
+
+    @FunctionalInterface
+    private interface Scenario {
+        void run() throws Exception;
+    }
+
+    record DemoEvent() {
+    }
+
+    @TestConfiguration
+    static class Listener {
+
+        @TransactionalEventListener
+        public void on(DemoEvent event) {
+        }
+    }
+}
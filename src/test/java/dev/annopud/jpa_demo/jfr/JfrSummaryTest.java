@@ -0,0 +1,54 @@
+package dev.annopud.jpa_demo.jfr;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrSummaryTest {
+
+    @Test
+    void testSummarisesApplicationEvents(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(TransactionJfrEvent.class);
+            recording.enable(FlushJfrEvent.class);
+            recording.start();
+
+            emitTransaction("NEW", "COMMIT");
+            emitTransaction("NEW", "COMMIT");
+            emitTransaction("REQUIRES_NEW", "ROLLBACK");
+            FlushJfrEvent flush = new FlushJfrEvent();
+            flush.begin();
+            flush.entities = 7;
+            flush.commit();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        String report = JfrSummary.summarise(file);
+
+        assertThat(report)
+            .containsPattern("Transaction NEW COMMIT\\s+2 ")
+            .containsPattern("Transaction REQUIRES_NEW ROLLBACK\\s+1 ")
+            .containsPattern("Flush\\s+1 ")
+            .contains("Entities flushed: 7");
+    }
+
+    @Test
+    void testEventsAreDisabledWithoutRecording() {
+        assertThat(new TransactionJfrEvent().isEnabled()).isFalse();
+    }
+
+    private static void emitTransaction(String kind, String outcome) {
+        TransactionJfrEvent event = new TransactionJfrEvent();
+        event.begin();
+        event.kind = kind;
+        event.outcome = outcome;
+        event.commit();
+    }
+}
@@ -0,0 +1,88 @@
+package dev.annopud.jpa_demo.load;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * End-to-end load run against an H2-backed instance of the app on a random port.
+ * <p>
+ * Skipped by default, run it with:
+ * <pre>
+ * ./mvnw test -Dtest=EndpointLoadTest -Dload=true -Dload.rate=200 -Dload.seconds=10
+ * </pre>
+ * Each scenario must stay under {@code load.maxErrorRate} (default 1%) of failed requests; 503s from admission
+ * control are counted apart and do not fail it. With {@code -Dload.maxP99Millis=<ms>} the CO-corrected p99 latency
+ * is checked as well. The scenarios in {@link #FAILING} must fail on every request they are not rejected on.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+@EnabledIfSystemProperty(named = "load", matches = "true")
+class EndpointLoadTest {
+
+    private static final Set<String> FAILING = Set.of(
+        // the sequence generator cannot produce the String id of GeneralTesting
+        "POST mypath/create",
+        // the outer commit throws UnexpectedRollbackException, that is the point of the scenario
+        "GET tx-demo/required-required-catch"
+    );
+
+    private static final String GENERAL_TESTING_BODY = """
+        {"type":1,"emailFrom":"from@example.com","emailTo":"to@example.com","createBy":"00001"}""";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void endpointsUnderOpenModelLoad() throws InterruptedException {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "100"));
+        Duration duration = Duration.ofSeconds(Long.getLong("load.seconds", 10L));
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmupSeconds", 2L));
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.maxErrorRate", "0.01"));
+        Long maxP99Millis = Long.getLong("load.maxP99Millis");
+
+        LoadHarness harness = new LoadHarness(
+            URI.create("http://localhost:" + port + "/"), dataSource, Duration.ofSeconds(30));
+
+        List<LoadScenario> scenarios = List.of(
+            LoadScenario.get("customers"),
+            LoadScenario.get("customers/transactional"),
+            LoadScenario.get("mypath"),
+            LoadScenario.post("mypath/create", GENERAL_TESTING_BODY),
+            LoadScenario.get("tx-demo/list"),
+            LoadScenario.get("tx-demo/required-required-catch"),
+            LoadScenario.get("tx-demo/required-requiresNew-catch"),
+            LoadScenario.get("tx-demo/required-nested-catch")
+        );
+
+        SoftAssertions softly = new SoftAssertions();
+        for (LoadScenario scenario : scenarios) {
+            LoadReport report = harness.run(scenario, rate, warmup, duration);
+            report.print(System.out);
+            if (FAILING.contains(scenario.name())) {
+                softly.assertThat(report.errors()).as("%s errors", scenario.name())
+                    .isEqualTo(report.completed() - report.rejected());
+                continue;
+            }
+            softly.assertThat(report.errorRate()).as("%s error rate", scenario.name()).isLessThanOrEqualTo(maxErrorRate);
+            if (maxP99Millis != null) {
+                softly.assertThat(report.latency().getValueAtPercentile(99) / 1000).as("%s p99 latency (ms)", scenario.name())
+                    .isLessThanOrEqualTo(maxP99Millis);
+            }
+        }
+        softly.assertAll();
+    }
+}
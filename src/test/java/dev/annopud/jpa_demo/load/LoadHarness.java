@@ -0,0 +1,213 @@
+package dev.annopud.jpa_demo.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.HdrHistogram.Recorder;
+
+import javax.sql.DataSource;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load generator.
+ * <p>
+ * Arrivals are scheduled at a fixed rate independent of how fast the app answers: the dispatcher never waits for
+ * a response, each request runs on its own virtual thread. Latency is taken from the intended start time, so a
+ * stalled server shows up as latency instead of silently lowering the offered load (coordinated omission).
+ */
+public class LoadHarness {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final URI baseUri;
+    private final DataSource dataSource;
+    private final Duration requestTimeout;
+    private final HttpClient client;
+
+    public LoadHarness(URI baseUri, DataSource dataSource, Duration requestTimeout) {
+        this.baseUri = baseUri;
+        this.dataSource = dataSource;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(requestTimeout)
+            .build();
+    }
+
+    /**
+     * Runs {@code warmup} without recording, then drives {@code scenario} at {@code ratePerSecond} for
+     * {@code duration} and waits for outstanding requests before reporting.
+     */
+    public LoadReport run(LoadScenario scenario, double ratePerSecond, Duration warmup, Duration duration)
+        throws InterruptedException {
+        if (!warmup.isZero()) {
+            drive(scenario, ratePerSecond, warmup, null);
+        }
+        return drive(scenario, ratePerSecond, duration, new Recording());
+    }
+
+    private LoadReport drive(LoadScenario scenario, double ratePerSecond, Duration duration, Recording recording)
+        throws InterruptedException {
+        long intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        long arrivals = (long) (duration.toNanos() / intervalNanos);
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(scenario.path()))
+            .timeout(requestTimeout)
+            .header("Content-Type", "application/json")
+            .method(scenario.method(), scenario.bodyPublisher())
+            .build();
+
+        PoolSampler sampler = new PoolSampler(hikariPool());
+        GcSnapshot gcBefore = GcSnapshot.take();
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            sampler.start();
+            for (long i = 0; i < arrivals; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                workers.execute(() -> send(request, intendedStart, recording));
+            }
+        } finally {
+            sampler.stop();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (recording == null) {
+            return null;
+        }
+        return new LoadReport(
+            scenario,
+            ratePerSecond,
+            Duration.ofNanos(elapsed),
+            arrivals,
+            recording.completed.sum(),
+            recording.errors.sum(),
+            recording.rejected.sum(),
+            recording.latency.getIntervalHistogram(),
+            recording.serviceTime.getIntervalHistogram(),
+            sampler.stats(),
+            GcSnapshot.take().minus(gcBefore)
+        );
+    }
+
+    private void send(HttpRequest request, long intendedStart, Recording recording) {
+        long sentAt = System.nanoTime();
+        boolean failed;
+        boolean rejected = false;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            // 503 is admission control shedding load, not a failure of the endpoint
+            rejected = response.statusCode() == 503;
+            failed = response.statusCode() >= 400 && !rejected;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed = true;
+        } catch (Exception e) {
+            failed = true;
+        }
+        if (recording == null) {
+            return;
+        }
+        long end = System.nanoTime();
+        recording.latency.recordValue(Math.min(toMicros(end - intendedStart), HIGHEST_TRACKABLE_MICROS));
+        recording.serviceTime.recordValue(Math.min(toMicros(end - sentAt), HIGHEST_TRACKABLE_MICROS));
+        recording.completed.increment();
+        if (failed) {
+            recording.errors.increment();
+        }
+        if (rejected) {
+            recording.rejected.increment();
+        }
+    }
+
+    private HikariPoolMXBean hikariPool() {
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            }
+        } catch (SQLException e) {
+            // not a Hikari pool, pool stats stay empty
+        }
+        return null;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private static final class Recording {
+        private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+    }
+
+    /**
+     * Samples Hikari's active/pending gauges every 10ms; the pool only exposes instantaneous values.
+     */
+    private static final class PoolSampler {
+        private final HikariPoolMXBean pool;
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final AtomicInteger maxPending = new AtomicInteger();
+        private final AtomicInteger total = new AtomicInteger();
+        private ScheduledExecutorService scheduler;
+
+        private PoolSampler(HikariPoolMXBean pool) {
+            this.pool = pool;
+        }
+
+        void start() {
+            if (pool == null) {
+                return;
+            }
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            scheduler.scheduleAtFixedRate(() -> {
+                maxActive.accumulateAndGet(pool.getActiveConnections(), Math::max);
+                maxPending.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+                total.set(pool.getTotalConnections());
+            }, 0, 10, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+
+        LoadReport.PoolStats stats() {
+            return new LoadReport.PoolStats(maxActive.get(), maxPending.get(), total.get());
+        }
+    }
+
+    private record GcSnapshot(long collections, long timeMillis) {
+
+        static GcSnapshot take() {
+            long count = 0;
+            long time = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                time += Math.max(0, gc.getCollectionTime());
+            }
+            return new GcSnapshot(count, time);
+        }
+
+        LoadReport.GcStats minus(GcSnapshot before) {
+            return new LoadReport.GcStats(collections - before.collections, timeMillis - before.timeMillis);
+        }
+    }
+}
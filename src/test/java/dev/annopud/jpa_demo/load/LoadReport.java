@@ -0,0 +1,64 @@
+package dev.annopud.jpa_demo.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+
+/**
+ * Result of one {@link LoadHarness} run.
+ * <p>
+ * {@code latency} is measured from the intended (scheduled) start of each request, so it is corrected for
+ * coordinated omission; {@code serviceTime} is measured from the moment the request was actually sent.
+ * Both histograms are in microseconds. {@code rejected} counts 503 responses from admission control; they are not
+ * {@code errors}.
+ */
+public record LoadReport(
+    LoadScenario scenario,
+    double targetRate,
+    Duration elapsed,
+    long sent,
+    long completed,
+    long errors,
+    long rejected,
+    Histogram latency,
+    Histogram serviceTime,
+    PoolStats pool,
+    GcStats gc
+) {
+
+    public double throughput() {
+        return completed / (elapsed.toNanos() / 1_000_000_000.0);
+    }
+
+    public double errorRate() {
+        return completed == 0 ? 0.0 : (double) errors / completed;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("== %s @ %.0f req/s for %s%n", scenario.name(), targetRate, elapsed);
+        out.printf("   sent=%d completed=%d errors=%d (%.2f%%) rejected=%d throughput=%.1f req/s%n",
+            sent, completed, errors, errorRate() * 100, rejected, throughput());
+        printHistogram(out, "latency (CO-corrected)", latency);
+        printHistogram(out, "service time          ", serviceTime);
+        out.printf("   pool: maxActive=%d maxPending=%d total=%d%n",
+            pool.maxActive(), pool.maxPending(), pool.total());
+        out.printf("   gc: collections=%d time=%dms%n", gc.collections(), gc.timeMillis());
+    }
+
+    private static void printHistogram(PrintStream out, String label, Histogram h) {
+        out.printf("   %s ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+            label,
+            h.getValueAtPercentile(50) / 1000.0,
+            h.getValueAtPercentile(90) / 1000.0,
+            h.getValueAtPercentile(99) / 1000.0,
+            h.getValueAtPercentile(99.9) / 1000.0,
+            h.getMaxValue() / 1000.0);
+    }
+
+    public record PoolStats(int maxActive, int maxPending, int total) {
+    }
+
+    public record GcStats(long collections, long timeMillis) {
+    }
+}
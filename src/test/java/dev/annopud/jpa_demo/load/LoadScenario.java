@@ -0,0 +1,23 @@
+package dev.annopud.jpa_demo.load;
+
+import java.net.http.HttpRequest;
+
+/**
+ * One endpoint to drive: HTTP method, path relative to the app root and an optional JSON body.
+ */
+public record LoadScenario(String name, String method, String path, String body) {
+
+    public static LoadScenario get(String path) {
+        return new LoadScenario("GET " + path, "GET", path, null);
+    }
+
+    public static LoadScenario post(String path, String body) {
+        return new LoadScenario("POST " + path, "POST", path, body);
+    }
+
+    HttpRequest.BodyPublisher bodyPublisher() {
+        return body == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body);
+    }
+}
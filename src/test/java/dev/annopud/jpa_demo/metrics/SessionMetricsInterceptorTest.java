@@ -0,0 +1,88 @@
+package dev.annopud.jpa_demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionMetricsInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionMetricsInterceptor interceptor = new SessionMetricsInterceptor(meterRegistry);
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void testMetricsArePublishedTaggedByHandler() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new Handler(), Handler.class.getMethod("list"));
+
+        interceptor.preHandle(request, response, handler);
+        RequestSessionMetrics metrics = RequestSessionMetrics.current();
+        metrics.statements = 3;
+        metrics.entityLoads = 2;
+        metrics.flushes = 1;
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertThat(RequestSessionMetrics.current()).isNull();
+        assertThat(request.getAttribute(RequestSessionMetrics.REQUEST_ATTRIBUTE)).isSameAs(metrics);
+        assertThat(summary("jpa.request.statements").totalAmount()).isEqualTo(3);
+        assertThat(summary("jpa.request.entity.loads").totalAmount()).isEqualTo(2);
+        assertThat(summary("jpa.request.flushes").totalAmount()).isEqualTo(1);
+        assertThat(meterRegistry.get("jpa.request.jdbc").tag("handler", "Handler.list").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testResourceRequestsAreNotMeasured() {
+        interceptor.preHandle(request, response, new Object());
+        assertThat(RequestSessionMetrics.current()).isNull();
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void testHeaderAdviceOnlyWhenEnabled() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(SessionMetricsHeaderAdvice.class);
+
+        runner.run(context -> assertThat(context).doesNotHaveBean(SessionMetricsHeaderAdvice.class));
+        runner.withPropertyValues("jpa-demo.session-metrics.header-enabled=false")
+            .run(context -> assertThat(context).doesNotHaveBean(SessionMetricsHeaderAdvice.class));
+        runner.withPropertyValues("jpa-demo.session-metrics.header-enabled=true")
+            .run(context -> assertThat(context).hasSingleBean(SessionMetricsHeaderAdvice.class));
+    }
+
+    @Test
+    void testHeaderCarriesTheRequestMetrics() throws Exception {
+        ServletServerHttpResponse serverResponse = new ServletServerHttpResponse(response);
+        SessionMetricsHeaderAdvice advice = new SessionMetricsHeaderAdvice();
+
+        RequestSessionMetrics.begin().statements = 4;
+        try {
+            advice.beforeBodyWrite("body", null, null, null, new ServletServerHttpRequest(request), serverResponse);
+        } finally {
+            RequestSessionMetrics.end();
+        }
+        serverResponse.flush();
+
+        assertThat(response.getHeader(SessionMetricsHeaderAdvice.HEADER)).startsWith("stmts=4;");
+    }
+
+    private DistributionSummary summary(String name) {
+        return meterRegistry.get(name).tag("handler", "Handler.list").summary();
+    }
+
+    static class Handler {
+
+        public String list() {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.annopud.jpa_demo.metrics;
+
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the {@code h2} profile, which keeps {@code hibernate.session.events.auto} from
+ * {@code application.properties}, with a {@link RequestSessionMetrics} bound to the test thread.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(LoadMetricsListener.class)
+class SessionMetricsListenerTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+            INSERT INTO general_testing (id, type, email_from, email_to, create_by, create_date, update_date)
+            VALUES ('SM-1', 1, 'from@example.com', 'to@example.com', 'TEST', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)""");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestSessionMetrics.end();
+        jdbcTemplate.update("DELETE FROM general_testing WHERE id LIKE 'SM-%'");
+    }
+
+    @Test
+    void testStatementsLoadsAndFlushesAreRecorded() {
+        RequestSessionMetrics metrics = RequestSessionMetrics.begin();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            GeneralTesting row = entityManager.find(GeneralTesting.class, "SM-1");
+            row.setEmailTo("other@example.com");
+        });
+
+        assertThat(metrics.getEntityFetches()).isEqualTo(1);
+        assertThat(metrics.getEntityLoads()).isEqualTo(1);
+        assertThat(metrics.getFlushes()).isEqualTo(1);
+        // the select and the update
+        assertThat(metrics.getStatements()).isEqualTo(2);
+        assertThat(metrics.getJdbcNanos()).isPositive();
+    }
+
+    @Test
+    void testWorkOnOtherThreadsIsNotAttributed() throws Exception {
+        RequestSessionMetrics metrics = RequestSessionMetrics.begin();
+
+        CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+            status -> entityManager.find(GeneralTesting.class, "SM-1"))).get(10, TimeUnit.SECONDS);
+
+        assertThat(metrics.toHeaderValue()).startsWith("stmts=0;").contains("loads=0;", "flushes=0;");
+    }
+}
@@ -0,0 +1,168 @@
+package dev.annopud.jpa_demo.observation;
+
+import brave.Tracing;
+import brave.sampler.Sampler;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ObservedDataSourceTest {
+
+    private final DriverManagerDataSource h2 = new DriverManagerDataSource("jdbc:h2:mem:observed;DB_CLOSE_DELAY=-1");
+    private final ObservationRegistry registry = ObservationRegistry.create();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStart(Observation.Context context) {
+                events.add("start " + context.getName());
+            }
+
+            @Override
+            public void onStop(Observation.Context context) {
+                events.add("stop " + context.getName());
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        new JdbcTemplate(h2).execute("CREATE TABLE item (id BIGINT PRIMARY KEY, name VARCHAR(32))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(h2).execute("DROP TABLE item");
+    }
+
+    @Test
+    void testStatementsAreOnlyObservedInSampledTraces() throws SQLException {
+        try (Tracing sampled = Tracing.newBuilder().sampler(Sampler.ALWAYS_SAMPLE).build();
+             Tracing unsampled = Tracing.newBuilder().sampler(Sampler.NEVER_SAMPLE).build()) {
+            inSpan(tracer(unsampled), () -> select(dataSource(tracer(unsampled), Duration.ofHours(1)), 1));
+            assertThat(statementObservations()).isEmpty();
+
+            inSpan(tracer(sampled), () -> select(dataSource(tracer(sampled), Duration.ofHours(1)), 1));
+            assertThat(statementObservations()).singleElement().satisfies(context -> {
+                assertThat(context.getLowCardinalityKeyValue("db.operation").getValue()).isEqualTo("SELECT");
+                assertThat(context.getHighCardinalityKeyValue("db.statement").getValue())
+                    .isEqualTo("SELECT name FROM item WHERE id = ?");
+                assertThat(context.getHighCardinalityKeyValue("db.slow")).isNull();
+            });
+        }
+    }
+
+    @Test
+    void testWithoutTracerStatementsInsideAnObservationAreObserved() throws SQLException {
+        ObservedDataSource dataSource = dataSource(null, Duration.ofHours(1));
+
+        select(dataSource, 1);
+        assertThat(statementObservations()).isEmpty();
+
+        Observation.createNotStarted("test", registry).observeChecked(() -> select(dataSource, 1));
+        assertThat(statementObservations()).hasSize(1);
+    }
+
+    @Test
+    void testSlowStatementIsExplainedAfterItsObservationStops() throws SQLException {
+        ObservedDataSource dataSource = dataSource(null, Duration.ZERO);
+
+        Observation.createNotStarted("test", registry).observeChecked(() -> {
+            select(dataSource, 1);
+            select(dataSource, 2);
+        });
+
+        assertThat(events).containsExactly(
+            "start test",
+            "start " + ObservedDataSource.OBSERVATION, "stop " + ObservedDataSource.OBSERVATION,
+            "start " + ObservedDataSource.EXPLAIN_OBSERVATION, "stop " + ObservedDataSource.EXPLAIN_OBSERVATION,
+            // the same statement shape is explained once per interval
+            "start " + ObservedDataSource.OBSERVATION, "stop " + ObservedDataSource.OBSERVATION,
+            "stop test");
+        assertThat(statementObservations())
+            .allSatisfy(context -> assertThat(context.getHighCardinalityKeyValue("db.slow").getValue()).isEqualTo("true"));
+        Observation.Context explain = stopped.stream()
+            .filter(context -> context.getName().equals(ObservedDataSource.EXPLAIN_OBSERVATION))
+            .findFirst()
+            .orElseThrow();
+        assertThat(explain.getHighCardinalityKeyValue("db.statement").getValue())
+            .isEqualTo("SELECT name FROM item WHERE id = ?");
+        assertThat(explain.getHighCardinalityKeyValue("db.plan").getValue()).containsIgnoringCase("item");
+        assertThat(explain.getError()).isNull();
+    }
+
+    @Test
+    void testProxiesAreEqualOnlyToThemselves() throws SQLException {
+        ObservedDataSource dataSource = dataSource(null, Duration.ofHours(1));
+
+        Observation.createNotStarted("test", registry).observeChecked(() -> {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT name FROM item WHERE id = ?")) {
+                assertThat(connection).isEqualTo(connection);
+                assertThat(connection.hashCode()).isEqualTo(System.identityHashCode(connection));
+                assertThat(statement).isEqualTo(statement);
+                assertThat(statement.hashCode()).isEqualTo(System.identityHashCode(statement));
+            }
+        });
+    }
+
+    private ObservedDataSource dataSource(Tracer tracer, Duration slowThreshold) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(
+            tracer != null ? Map.of("registry", registry, "tracer", tracer) : Map.of("registry", registry));
+        return new ObservedDataSource(h2, beans.getBeanProvider(ObservationRegistry.class),
+            beans.getBeanProvider(Tracer.class), slowThreshold, Duration.ofMinutes(1));
+    }
+
+    private List<Observation.Context> statementObservations() {
+        return stopped.stream().filter(context -> context.getName().equals(ObservedDataSource.OBSERVATION)).toList();
+    }
+
+    private static Tracer tracer(Tracing tracing) {
+        return new BraveTracer(tracing.tracer(), new BraveCurrentTraceContext(tracing.currentTraceContext()));
+    }
+
+    private static void inSpan(Tracer tracer, Observation.CheckedRunnable<SQLException> action) throws SQLException {
+        Span span = tracer.nextSpan().start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            action.run();
+        } finally {
+            span.end();
+        }
+    }
+
+    private static void select(ObservedDataSource dataSource, long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT name FROM item WHERE id = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet ignored = statement.executeQuery()) {
+                // only the execution is observed
+            }
+        }
+    }
+}
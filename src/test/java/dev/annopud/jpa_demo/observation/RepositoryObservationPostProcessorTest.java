@@ -0,0 +1,101 @@
+package dev.annopud.jpa_demo.observation;
+
+import dev.annopud.jpa_demo.entity.TxDemoRecord;
+import dev.annopud.jpa_demo.repository.TxDemoRecordRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs outside a test transaction, so that each repository call opens and commits its own.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(PropertyPlaceholderAutoConfiguration.class)
+@Import({RepositoryObservationPostProcessor.class, ObservedDataSourcePostProcessor.class,
+    RepositoryObservationPostProcessorTest.Recording.class})
+class RepositoryObservationPostProcessorTest {
+
+    @Autowired
+    private TxDemoRecordRepository records;
+
+    @Autowired
+    private Recording recording;
+
+    @AfterEach
+    void tearDown() {
+        records.deleteAllInBulk();
+    }
+
+    @Test
+    void testRepositoryObservationEnclosesItsTransaction() {
+        recording.stopped.clear();
+        TxDemoRecord record = new TxDemoRecord();
+        record.setTag("observed");
+        record.setCreateDate(new Date());
+
+        records.save(record);
+
+        assertThat(recording.stopped)
+            .filteredOn(context -> context.getName().equals(RepositoryObservationPostProcessor.OBSERVATION))
+            .singleElement()
+            .satisfies(context -> {
+                assertThat(context.getLowCardinalityKeyValue("repository").getValue()).isEqualTo("TxDemoRecordRepository");
+                assertThat(context.getLowCardinalityKeyValue("method").getValue()).isEqualTo("save");
+            });
+        // the INSERT runs when the transaction commits, still inside the repository observation
+        assertThat(recording.stopped)
+            .filteredOn(context -> context.getName().equals(ObservedDataSource.OBSERVATION))
+            .filteredOn(context -> context.getLowCardinalityKeyValue("db.operation").getValue().equals("INSERT"))
+            .singleElement()
+            .satisfies(context -> {
+                assertThat(context.getParentObservation().getContextView().getName())
+                    .isEqualTo(RepositoryObservationPostProcessor.OBSERVATION);
+                assertThat(context.getLowCardinalityKeyValue("method").getValue()).isEqualTo("save");
+            });
+    }
+
+    @TestConfiguration
+    static class Recording {
+
+        final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+
+        @Bean
+        ObservationRegistry observationRegistry() {
+            ObservationRegistry registry = ObservationRegistry.create();
+            registry.observationConfig().observationHandler(new ObservationHandler<>() {
+                @Override
+                public void onStop(Observation.Context context) {
+                    stopped.add(context);
+                }
+
+                @Override
+                public boolean supportsContext(Observation.Context context) {
+                    return true;
+                }
+            });
+            return registry;
+        }
+    }
+}
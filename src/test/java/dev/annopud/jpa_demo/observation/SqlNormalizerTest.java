@@ -0,0 +1,34 @@
+package dev.annopud.jpa_demo.observation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlNormalizerTest {
+
+    @Test
+    void testLiteralsAndInListsCollapse() {
+        String sql = """
+            select c1_0.id, c1_0.first_name
+            from customer c1_0
+            where c1_0.last_name = 'O''Brien' and c1_0.id in (?, ?,?) and c1_0.version > 10
+            limit 1.5""";
+
+        assertThat(SqlNormalizer.normalize(sql)).isEqualTo(
+            "select c1_0.id, c1_0.first_name from customer c1_0 where c1_0.last_name = ? and c1_0.id in (?)"
+                + " and c1_0.version > ? limit ?");
+    }
+
+    @Test
+    void testSameShapeGivesSameStatement() {
+        assertThat(SqlNormalizer.normalize("DELETE FROM general_testing WHERE id IN (?, ?)"))
+            .isEqualTo(SqlNormalizer.normalize("DELETE  FROM general_testing\nWHERE id IN (?)"));
+    }
+
+    @Test
+    void testOperation() {
+        assertThat(SqlNormalizer.operation("  select 1")).isEqualTo("SELECT");
+        assertThat(SqlNormalizer.operation("(select id from customer) union (select id from client)")).isEqualTo("SELECT");
+        assertThat(SqlNormalizer.operation("")).isEqualTo("OTHER");
+    }
+}
@@ -0,0 +1,90 @@
+package dev.annopud.jpa_demo.repository;
+
+import dev.annopud.jpa_demo.entity.TxDemoRecord;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the {@code h2} profile, whose schema is created by Hibernate; the embedded database the slice
+ * would substitute gets no schema under the application's {@code ddl-auto=none}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+class TxDemoRecordRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TxDemoRecordRepository records;
+
+    @Test
+    void testFindAllTags() {
+        persist("a");
+        persist("b");
+
+        assertThat(records.findAllTags()).containsExactly("a", "b");
+    }
+
+    @Test
+    void testDeleteAllInBulkEvictsManagedRecords() {
+        TxDemoRecord record = persist("a");
+        persist("b");
+
+        assertThat(records.deleteAllInBulk()).isEqualTo(2);
+        assertThat(entityManager.getEntityManager().contains(record)).isFalse();
+        assertThat(records.count()).isZero();
+    }
+
+    @Test
+    void testDeleteByIdsInChunks() {
+        persist("a");
+        persist("b");
+        persist("c");
+
+        List<Long> firstChunk = records.findIds(PageRequest.ofSize(2));
+        assertThat(records.deleteByIds(firstChunk)).isEqualTo(2);
+        assertThat(records.findAllTags()).containsExactly("c");
+    }
+
+    @Test
+    void testInsertsAreBatched() {
+        Statistics statistics = entityManager.getEntityManager()
+            .getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+        statistics.clear();
+
+        records.saveAll(IntStream.range(0, 20).mapToObj(i -> record("tag-" + i)).toList());
+        records.flush();
+
+        // a few sequence round trips (one per block of 50 ids) and a single batched insert, not 20 inserts
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+        assertThat(records.count()).isEqualTo(20);
+    }
+
+    private TxDemoRecord persist(String tag) {
+        return entityManager.persist(record(tag));
+    }
+
+    private static TxDemoRecord record(String tag) {
+        TxDemoRecord record = new TxDemoRecord();
+        record.setTag(tag);
+        record.setCreateDate(new Date());
+        return record;
+    }
+}
@@ -0,0 +1,139 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against the {@code h2} profile with chunks of at most two ids and at most four ids per lookup, counting statements with Hibernate's
+ * statistics.
+ */
+@DataJpaTest(properties = {
+    "jpa-demo.batch-find.max-chunk-size=2",
+    "jpa-demo.batch-find.max-ids=4",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(BatchFinder.class)
+class BatchFinderTest {
+
+    @Autowired
+    private BatchFinder batchFinder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (String id : List.of("BF-A", "BF-B", "BF-C")) {
+            jdbcTemplate.update("""
+                INSERT INTO general_testing (id, type, email_from, email_to, create_by, create_date, update_date)
+                VALUES (?, 1, 'from@example.com', 'to@example.com', 'TEST', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)""", id);
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM general_testing WHERE id LIKE 'BF-%'");
+    }
+
+    @Test
+    void testResultsFollowRequestOrder() {
+        List<GeneralTesting> found = batchFinder.findGeneralTestings(List.of("BF-C", "BF-A", "BF-MISSING", "BF-B"));
+
+        assertThat(found).extracting(GeneralTesting::getId).containsExactly("BF-C", "BF-A", "BF-B");
+        // four distinct ids in chunks of two
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testDuplicateIdsAreReturnedAgainAndQueriedOnce() {
+        List<GeneralTesting> found = batchFinder.findGeneralTestings(List.of("BF-B", "BF-A", "BF-B"));
+
+        assertThat(found).extracting(GeneralTesting::getId).containsExactly("BF-B", "BF-A", "BF-B");
+        assertThat(found.get(0)).isSameAs(found.get(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testNullIdsAreLeftOut() {
+        List<GeneralTesting> found = batchFinder.findGeneralTestings(Arrays.asList(null, "BF-A", null));
+
+        assertThat(found).extracting(GeneralTesting::getId).containsExactly("BF-A");
+        assertThat(batchFinder.findGeneralTestings(Arrays.asList((String) null))).isEmpty();
+    }
+
+    @Test
+    void testManagedEntitiesAreTakenFromThePersistenceContext() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            GeneralTesting managed = entityManager.find(GeneralTesting.class, "BF-A");
+            long before = statistics.getPrepareStatementCount();
+
+            List<GeneralTesting> found = batchFinder.findGeneralTestings(List.of("BF-A"));
+
+            assertThat(found).singleElement().isSameAs(managed);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(before);
+        });
+    }
+
+    @Test
+    void testTooManyIdsAreRejected() {
+        assertThatThrownBy(() -> batchFinder.findGeneralTestings(List.of("BF-A", "BF-B", "BF-C", "BF-A", "BF-B")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("At most 4 ids");
+    }
+
+    @Test
+    void testMaxChunkSizeMustBePositive() {
+        assertThatThrownBy(() -> new BatchFinder(null, null, null, 0, 1))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("max-chunk-size");
+        assertThatThrownBy(() -> new BatchFinder(null, null, null, 1, 0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("max-ids");
+    }
+
+    @Test
+    void testPadToPowerOfTwo() {
+        assertThat(BatchFinder.padToPowerOfTwo(List.of(1L))).containsExactly(1L);
+        assertThat(BatchFinder.padToPowerOfTwo(List.of(1L, 2L))).containsExactly(1L, 2L);
+        assertThat(BatchFinder.padToPowerOfTwo(List.of(1L, 2L, 3L))).containsExactly(1L, 2L, 3L, 3L);
+        assertThat(BatchFinder.padToPowerOfTwo(List.of(1L, 2L, 3L, 4L, 5L))).hasSize(8).endsWith(5L, 5L, 5L, 5L);
+    }
+}
@@ -0,0 +1,72 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.service.ContentionAwareRetryExecutor.LockStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentionAwareRetryExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ContentionAwareRetryExecutor executor = new ContentionAwareRetryExecutor(
+        new NoOpTransactionManager(), meterRegistry, 5, Duration.ofMillis(1), Duration.ofMillis(2), 1.5);
+
+    @Test
+    void testRetriesUntilSuccess() {
+        List<LockStrategy> attempts = new ArrayList<>();
+
+        String result = executor.execute(Customer.class, 1L, strategy -> {
+            attempts.add(strategy);
+            if (attempts.size() < 3) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        // the third attempt sees two conflicts on the row and takes the pessimistic path
+        assertThat(attempts).containsExactly(LockStrategy.OPTIMISTIC, LockStrategy.OPTIMISTIC, LockStrategy.PESSIMISTIC);
+        assertThat(meterRegistry.counter("jpa.retry.conflicts", "entity", "Customer").count()).isEqualTo(2);
+    }
+
+    @Test
+    void testContentionIsTrackedPerRow() {
+        assertThatThrownBy(() -> executor.execute(Customer.class, 1L, strategy -> {
+            throw new OptimisticLockingFailureException("conflict");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        LockStrategy contended = executor.execute(Customer.class, 1L, strategy -> strategy);
+        LockStrategy uncontended = executor.execute(Customer.class, 2L, strategy -> strategy);
+        assertThat(contended).isEqualTo(LockStrategy.PESSIMISTIC);
+        assertThat(uncontended).isEqualTo(LockStrategy.OPTIMISTIC);
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
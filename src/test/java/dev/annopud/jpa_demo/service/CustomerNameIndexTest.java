@@ -0,0 +1,81 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs outside a test transaction, so that the post-commit listeners see the commits.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(CustomerNameIndex.class)
+class CustomerNameIndexTest {
+
+    @Autowired
+    private CustomerNameIndex nameIndex;
+
+    @Autowired
+    private CustomerRepository customers;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM customer WHERE last_name LIKE 'Zz%'");
+        nameIndex.rebuild();
+    }
+
+    @Test
+    void testCommittedChangesAreIndexed() {
+        Customer customer = customers.save(new Customer("Zzkim", "Zzbauer"));
+        assertThat(nameIndex.suggest("zz", 10)).containsExactly("Zzbauer", "Zzkim");
+
+        customer.setLastName("Zzpalmer");
+        customer = customers.save(customer);
+        assertThat(nameIndex.suggest("zz", 10)).containsExactly("Zzkim", "Zzpalmer");
+
+        customers.delete(customer);
+        assertThat(nameIndex.suggest("zz", 10)).isEmpty();
+    }
+
+    @Test
+    void testRolledBackChangesAreNotIndexed() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            customers.save(new Customer("Zzkim", "Zzbauer"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(nameIndex.suggest("zz", 10)).isEmpty();
+    }
+
+    @Test
+    void testRebuildPicksUpWritesThatBypassTheSession() {
+        Customer customer = customers.save(new Customer("Zzkim", "Zzbauer"));
+        jdbcTemplate.update("UPDATE customer SET last_name = 'Zzdessler' WHERE id = ?", customer.getId());
+        assertThat(nameIndex.suggest("zz", 10)).containsExactly("Zzbauer", "Zzkim");
+
+        nameIndex.rebuild();
+
+        assertThat(nameIndex.suggest("zz", 10)).containsExactly("Zzdessler", "Zzkim");
+    }
+}
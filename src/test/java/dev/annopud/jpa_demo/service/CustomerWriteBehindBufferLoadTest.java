@@ -0,0 +1,174 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.Customer;
+import dev.annopud.jpa_demo.repository.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loads customers through {@link CustomerRepository} while {@link CustomerWriteBehindBuffer} has an update queued,
+ * while it is being written and after it committed, against the {@code h2} profile. The buffer's flushes go
+ * through a transaction manager that can hold them before they commit.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerWriteBehindBufferLoadTest {
+
+    private static final long ID = 9001;
+
+    @Autowired
+    private CustomerWriteBehindBuffer buffer;
+
+    @Autowired
+    private CommitGate commitGate;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO customer (id, first_name, last_name, version) VALUES (?, 'Jack', 'Bauer', 0)", ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        commitGate.release();
+        buffer.flush();
+        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", ID);
+    }
+
+    @Test
+    void testLoadSeesQueuedUpdate() {
+        buffer.update(ID, "Kim", null);
+
+        assertThat(customerRepository.findById(ID)).extracting(Customer::getFirstName, Customer::getLastName)
+            .containsExactly("Kim", "Bauer");
+        assertThat(firstNameInDatabase()).isEqualTo("Jack");
+    }
+
+    @Test
+    void testLoadSeesUpdateBeingWritten() throws Exception {
+        buffer.update(ID, "Kim", null);
+        commitGate.hold();
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(buffer::flush);
+        assertThat(commitGate.reached.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(customerRepository.findById(ID).getFirstName()).isEqualTo("Kim");
+
+        commitGate.release();
+        flush.get(10, TimeUnit.SECONDS);
+        assertThat(customerRepository.findById(ID)).extracting(Customer::getFirstName, Customer::getVersion)
+            .containsExactly("Kim", 1L);
+    }
+
+    /**
+     * The row is read from a snapshot taken before the flush committed, and the load completes after the flush
+     * has left the buffer.
+     */
+    @Test
+    void testLoadReadingTheRowBeforeTheCommitSeesTheWrittenUpdate() {
+        buffer.update(ID, "Kim", null);
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        Customer loaded = snapshot.execute(status -> {
+            assertThat(customerRepository.count()).isPositive();
+            CompletableFuture.runAsync(buffer::flush).join();
+            return customerRepository.findById(ID);
+        });
+
+        assertThat(loaded).extracting(Customer::getFirstName, Customer::getVersion).containsExactly("Kim", 0L);
+        assertThat(buffer.pendingFor(ID)).isNull();
+        assertThat(firstNameInDatabase()).isEqualTo("Kim");
+    }
+
+    private String firstNameInDatabase() {
+        return jdbcTemplate.queryForObject("SELECT first_name FROM customer WHERE id = ?", String.class, ID);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        CommitGate commitGate() {
+            return new CommitGate();
+        }
+
+        @Bean
+        CustomerWriteBehindBuffer customerWriteBehindBuffer(DataSource dataSource, EntityManagerFactory entityManagerFactory,
+                                                            CommitGate commitGate) {
+            return new CustomerWriteBehindBuffer(dataSource, new GatedTransactionManager(dataSource, commitGate),
+                entityManagerFactory, new SimpleMeterRegistry(), Duration.ofHours(1));
+        }
+    }
+
+    static class CommitGate {
+
+        private volatile CountDownLatch reached = new CountDownLatch(0);
+        private volatile CountDownLatch released = new CountDownLatch(0);
+
+        void hold() {
+            reached = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+
+    private static class GatedTransactionManager extends DataSourceTransactionManager {
+
+        private final CommitGate gate;
+
+        GatedTransactionManager(DataSource dataSource, CommitGate gate) {
+            super(dataSource);
+            this.gate = gate;
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            gate.reached.countDown();
+            try {
+                gate.released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.doCommit(status);
+        }
+    }
+}
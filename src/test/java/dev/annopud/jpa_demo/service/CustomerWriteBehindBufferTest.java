@@ -0,0 +1,145 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.service.CustomerWriteBehindBuffer.PendingName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives {@link CustomerWriteBehindBuffer#flush()} by hand against a plain H2 database; the transaction manager can
+ * hold a flush before it commits or make it fail.
+ */
+class CustomerWriteBehindBufferTest {
+
+    private final DriverManagerDataSource dataSource =
+        new DriverManagerDataSource("jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ControllableTransactionManager transactionManager = new ControllableTransactionManager();
+
+    private CustomerWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("""
+            CREATE TABLE customer (id BIGINT PRIMARY KEY, first_name VARCHAR(255), last_name VARCHAR(255),
+                version BIGINT NOT NULL)""");
+        jdbcTemplate.update("INSERT INTO customer VALUES (1, 'Jack', 'Bauer', 0), (2, 'Chloe', 'O''Brian', 0)");
+        buffer = new CustomerWriteBehindBuffer(dataSource, transactionManager, null, meterRegistry, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE customer");
+    }
+
+    @Test
+    void testUpdatesToTheSameIdAreCoalesced() {
+        buffer.update(1, "Kim", null);
+        buffer.update(1, null, "Palmer");
+        buffer.update(1, "David", null);
+        buffer.update(2, null, "Hudson");
+
+        assertThat(buffer.pendingFor(1)).isEqualTo(new PendingName("David", "Palmer"));
+        buffer.flush();
+
+        assertThat(buffer.pendingFor(1)).isNull();
+        assertThat(meterRegistry.counter("jpa.write-behind.rows-written", "entity", "Customer").count()).isEqualTo(2);
+        assertThat(row(1)).containsEntry("FIRST_NAME", "David").containsEntry("LAST_NAME", "Palmer")
+            .containsEntry("VERSION", 1L);
+        assertThat(row(2)).containsEntry("FIRST_NAME", "Chloe").containsEntry("LAST_NAME", "Hudson");
+    }
+
+    @Test
+    void testPendingNamesAreVisibleWhileBeingWritten() throws Exception {
+        buffer.update(1, "Kim", null);
+        transactionManager.holdCommit();
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(buffer::flush);
+        assertThat(transactionManager.commitReached.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // the entry has left pending, the overlay still finds it, merged with what was queued since
+        assertThat(buffer.pendingFor(1)).isEqualTo(new PendingName("Kim", null));
+        buffer.update(1, null, "Palmer");
+        assertThat(buffer.pendingFor(1)).isEqualTo(new PendingName("Kim", "Palmer"));
+
+        transactionManager.releaseCommit();
+        flush.get(10, TimeUnit.SECONDS);
+        assertThat(buffer.pendingFor(1)).isEqualTo(new PendingName(null, "Palmer"));
+        assertThat(row(1)).containsEntry("FIRST_NAME", "Kim").containsEntry("LAST_NAME", "Bauer");
+    }
+
+    @Test
+    void testFailedFlushIsRequeuedBehindNewerUpdates() throws Exception {
+        buffer.update(1, "Kim", "Palmer");
+        transactionManager.holdCommit();
+        transactionManager.failCommit = true;
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(buffer::flush);
+        assertThat(transactionManager.commitReached.await(10, TimeUnit.SECONDS)).isTrue();
+        buffer.update(1, "David", null);
+        transactionManager.releaseCommit();
+        flush.get(10, TimeUnit.SECONDS);
+
+        assertThat(row(1)).containsEntry("FIRST_NAME", "Jack");
+        assertThat(buffer.pendingFor(1)).isEqualTo(new PendingName("David", "Palmer"));
+
+        transactionManager.failCommit = false;
+        buffer.flush();
+        assertThat(row(1)).containsEntry("FIRST_NAME", "David").containsEntry("LAST_NAME", "Palmer");
+        assertThat(buffer.pendingFor(1)).isNull();
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForMap("SELECT first_name, last_name, version FROM customer WHERE id = ?", id);
+    }
+
+    private class ControllableTransactionManager extends DataSourceTransactionManager {
+
+        private CountDownLatch commitReached = new CountDownLatch(0);
+        private CountDownLatch commitReleased = new CountDownLatch(0);
+        private volatile boolean failCommit;
+
+        ControllableTransactionManager() {
+            super(dataSource);
+            setRollbackOnCommitFailure(true);
+        }
+
+        void holdCommit() {
+            commitReached = new CountDownLatch(1);
+            commitReleased = new CountDownLatch(1);
+        }
+
+        void releaseCommit() {
+            commitReleased.countDown();
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commitReached.countDown();
+            try {
+                commitReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failCommit) {
+                throw new TransactionSystemException("commit failed");
+            }
+            super.doCommit(status);
+        }
+    }
+}
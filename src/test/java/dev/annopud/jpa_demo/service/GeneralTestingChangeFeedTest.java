@@ -0,0 +1,121 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import dev.annopud.jpa_demo.service.GeneralTestingChangeFeed.Page;
+import dev.annopud.jpa_demo.service.GeneralTestingChangeFeed.Position;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against the {@code h2} profile with a settle time of one hour. CF-A, CF-B and CF-C share one
+ * {@code update_date}, CF-D is a second later and CF-E was changed just now, inside the settle time.
+ */
+@DataJpaTest(properties = "jpa-demo.change-feed.settle-time=1h")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(GeneralTestingChangeFeed.class)
+class GeneralTestingChangeFeedTest {
+
+    private static final Instant SAME = Instant.parse("2000-01-01T00:00:00.250Z");
+
+    @Autowired
+    private GeneralTestingChangeFeed changeFeed;
+
+    @Autowired
+    private GeneralTestingRepository generalTestingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        insert("CF-B", SAME);
+        insert("CF-C", SAME);
+        insert("CF-A", SAME);
+        insert("CF-D", SAME.plusSeconds(1));
+        insert("CF-E", Instant.now());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM general_testing WHERE id LIKE 'CF-%'");
+    }
+
+    @Test
+    void testKeysetContinuesWithinEqualUpdateDates() {
+        Date upTo = Date.from(Instant.now().minus(Duration.ofHours(1)));
+
+        assertThat(generalTestingRepository.findChangedAfter(Date.from(SAME), "CF-A", upTo, PageRequest.ofSize(10)))
+            .extracting(GeneralTesting::getId)
+            .startsWith("CF-B", "CF-C", "CF-D");
+    }
+
+    @Test
+    void testPagesVisitEveryRowOnceInOrder() {
+        Page first = changeFeed.changesSince(null, 2);
+        assertThat(first.items()).extracting(GeneralTesting::getId).containsExactly("CF-A", "CF-B");
+        assertThat(first.hasMore()).isTrue();
+
+        Page second = changeFeed.changesSince(first.watermark(), 2);
+        assertThat(second.items()).extracting(GeneralTesting::getId).containsExactly("CF-C", "CF-D");
+    }
+
+    @Test
+    void testChangesInsideTheSettleTimeAreHeldBack() {
+        Page page = changeFeed.changesSince(null, 500);
+
+        assertThat(page.items()).extracting(GeneralTesting::getId)
+            .contains("CF-A", "CF-B", "CF-C", "CF-D")
+            .doesNotContain("CF-E");
+        assertThat(page.hasMore()).isFalse();
+
+        // once settled it is served after the watermark
+        jdbcTemplate.update("UPDATE general_testing SET update_date = ? WHERE id = 'CF-E'",
+            Timestamp.from(Instant.now().minus(Duration.ofHours(2))));
+        assertThat(changeFeed.changesSince(page.watermark(), 500).items()).extracting(GeneralTesting::getId)
+            .containsExactly("CF-E");
+    }
+
+    @Test
+    void testWatermarkRoundTrip() {
+        Position position = new Position(new Date(1_760_520_000_123L), "CASE:1234");
+
+        String watermark = GeneralTestingChangeFeed.encode(position);
+
+        assertThat(watermark).doesNotContain("CASE");
+        assertThat(GeneralTestingChangeFeed.decode(watermark)).isEqualTo(position);
+    }
+
+    @Test
+    void testInvalidWatermark() {
+        assertThatThrownBy(() -> GeneralTestingChangeFeed.decode("not-a-watermark"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void insert(String id, Instant updated) {
+        jdbcTemplate.update("""
+                INSERT INTO general_testing (id, type, email_from, email_to, create_by, create_date, update_date)
+                VALUES (?, 1, 'from@example.com', 'to@example.com', 'TEST', ?, ?)""",
+            id, Timestamp.from(updated), Timestamp.from(updated));
+    }
+}
@@ -0,0 +1,43 @@
+package dev.annopud.jpa_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeneralTestingFieldSetTest {
+
+    @Test
+    void testDefaultLeavesOutLargeColumns() {
+        assertThat(GeneralTestingFieldSet.parse(null)).isSameAs(GeneralTestingFieldSet.DEFAULT);
+        assertThat(GeneralTestingFieldSet.DEFAULT.names())
+            .contains("id", "emailStatus", "updateDate")
+            .doesNotContain("emailSubmitParam", "emailError");
+        assertThat(GeneralTestingFieldSet.parse(" * ").names()).isEqualTo(GeneralTestingFieldSet.ALL_NAMES);
+    }
+
+    @Test
+    void testRequestedFieldsInDeclarationOrderWithId() {
+        GeneralTestingFieldSet fields = GeneralTestingFieldSet.parse("emailError, emailStatus,,emailStatus");
+
+        assertThat(fields.names()).containsExactly("id", "emailStatus", "emailError");
+        assertThat(fields.variant()).isEqualTo(GeneralTestingFieldSet.parse("emailStatus,id,emailError").variant());
+        assertThat(fields.variant()).isNotEqualTo(GeneralTestingFieldSet.DEFAULT.variant());
+    }
+
+    @Test
+    void testVariantEncodesTheSetExactly() {
+        // bit i stands for ALL_NAMES[i]
+        assertThat(GeneralTestingFieldSet.parse("id").variant()).isEqualTo("1");
+        assertThat(GeneralTestingFieldSet.parse("type,emailError").variant()).isEqualTo("2003");
+        assertThat(GeneralTestingFieldSet.ALL.variant()).isEqualTo("3fff");
+        assertThat(GeneralTestingFieldSet.DEFAULT.variant()).isEqualTo("fff");
+    }
+
+    @Test
+    void testUnknownFieldIsRejected() {
+        assertThatThrownBy(() -> GeneralTestingFieldSet.parse("id,password"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("Unknown field [password]");
+    }
+}
@@ -0,0 +1,154 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.converter.PayloadCodec;
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the {@code h2} profile outside a test transaction, so that every chunk commits on its own. The job
+ * is built by hand with chunks of two rows; the rows are written with plain JDBC in the legacy raw format.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GeneralTestingPayloadRecompressionJobTest {
+
+    private static final Timestamp UPDATED = Timestamp.valueOf("2025-10-15 10:36:43.919");
+
+    @Autowired
+    private GeneralTestingRepository generalTestingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // id -> payload as the application sees it
+    private final Map<String, byte[]> payloads = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        payloads.put("RC-1", json("first", 40));
+        payloads.put("RC-2", json("second", 40));
+        payloads.put("RC-3", json("short", 1));
+        payloads.put("RC-4", json("fourth", 40));
+        payloads.put("RC-5", json("fifth", 40));
+        payloads.forEach((id, payload) -> insert(id, payload));
+        // already in the compressed format, left as it is
+        jdbcTemplate.update("UPDATE general_testing SET email_submit_param = ? WHERE id = 'RC-2'",
+            PayloadCodec.encode(payloads.get("RC-2")));
+        insert("RC-6", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM general_testing WHERE id LIKE 'RC-%'");
+    }
+
+    @Test
+    void testLegacyPayloadsAreCompressedAndRoundTrip() {
+        assertThat(job(generalTestingRepository).run()).isEqualTo(3);
+
+        assertThat(PayloadCodec.isCompressed(stored("RC-1"))).isTrue();
+        assertThat(PayloadCodec.isCompressed(stored("RC-4"))).isTrue();
+        assertThat(PayloadCodec.isCompressed(stored("RC-5"))).isTrue();
+        // below MIN_COMPRESS_LENGTH, stays raw
+        assertThat(stored("RC-3")).isEqualTo(payloads.get("RC-3"));
+        payloads.forEach((id, payload) -> assertThat(PayloadCodec.decode(stored(id))).as(id).isEqualTo(payload));
+        assertThat(jdbcTemplate.queryForList("SELECT update_date FROM general_testing WHERE id LIKE 'RC-%'", Timestamp.class))
+            .hasSize(6)
+            .containsOnly(UPDATED);
+        // every row with a payload is walked, over three chunks of two
+        assertThat(meterRegistry.counter("general_testing.payload.recompression.rows", "result", "scanned").count())
+            .isEqualTo(5);
+
+        assertThat(job(generalTestingRepository).run()).isZero();
+    }
+
+    @Test
+    void testLoadedRowDecodesOnFirstAccess() {
+        job(generalTestingRepository).run();
+
+        GeneralTesting row = generalTestingRepository.findById("RC-1").orElseThrow();
+        assertThat(row.getEmailSubmitParam()).isEqualTo(payloads.get("RC-1"));
+        assertThat(row.getEmailSubmitParam()).isSameAs(row.getEmailSubmitParam());
+    }
+
+    @Test
+    void testRowChangedAfterItWasReadIsNotRewritten() {
+        byte[] edited = json("edited", 40);
+        Timestamp editedAt = new Timestamp(UPDATED.getTime() + 1_000);
+        boolean[] changed = new boolean[1];
+        // the first chunk's rows are read, then RC-1 is edited and committed before the job writes them back
+        GeneralTestingRepository concurrentEdit = (GeneralTestingRepository) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[]{GeneralTestingRepository.class}, (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(generalTestingRepository, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+                if (method.getName().equals("findStoredPayloadsAfter") && !changed[0]) {
+                    changed[0] = true;
+                    CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                        "UPDATE general_testing SET email_submit_param = ?, update_date = ? WHERE id = 'RC-1'",
+                        edited, editedAt)).join();
+                }
+                return result;
+            });
+
+        assertThat(job(concurrentEdit).run()).isEqualTo(2);
+
+        assertThat(stored("RC-1")).isEqualTo(edited);
+        assertThat(jdbcTemplate.queryForObject("SELECT update_date FROM general_testing WHERE id = 'RC-1'", Timestamp.class))
+            .isEqualTo(editedAt);
+        assertThat(PayloadCodec.isCompressed(stored("RC-4"))).isTrue();
+    }
+
+    private GeneralTestingPayloadRecompressionJob job(GeneralTestingRepository repository) {
+        return new GeneralTestingPayloadRecompressionJob(repository, transactionManager, meterRegistry, 2, Duration.ZERO);
+    }
+
+    private void insert(String id, byte[] payload) {
+        jdbcTemplate.update("""
+                INSERT INTO general_testing (id, type, email_from, email_to, create_by, create_date, update_date,
+                    email_submit_param)
+                VALUES (?, 1, 'from@example.com', 'to@example.com', 'TEST', ?, ?, ?)""",
+            id, UPDATED, UPDATED, payload);
+    }
+
+    private byte[] stored(String id) {
+        return jdbcTemplate.queryForObject("SELECT email_submit_param FROM general_testing WHERE id = ?", byte[].class, id);
+    }
+
+    private static byte[] json(String value, int repeat) {
+        return ("{\"value\":\"" + value.repeat(repeat) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.repository.GeneralTestingArchiveRepository;
+import dev.annopud.jpa_demo.repository.GeneralTestingRepository;
+import dev.annopud.jpa_demo.repository.GeneralTestingStatusRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against the {@code h2} profile outside a test transaction, so that every chunk commits on its own. The job
+ * is built by hand with chunks of two rows and a status rollup that can be made to fail in the middle of a chunk,
+ * after the rows have been copied to the archive and before they are deleted.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GeneralTestingRetentionJobTest {
+
+    private static final List<String> OLD = List.of("RET-OLD-1", "RET-OLD-2", "RET-OLD-3", "RET-OLD-4", "RET-OLD-5");
+    private static final List<String> YOUNG = List.of("RET-YOUNG-1", "RET-YOUNG-2");
+
+    @Autowired
+    private GeneralTestingRepository generalTestingRepository;
+
+    @Autowired
+    private GeneralTestingArchiveRepository archiveRepository;
+
+    @Autowired
+    private GeneralTestingStatusRollupRepository rollupRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private FailingRollups rollups;
+    private GeneralTestingRetentionJob job;
+
+    @BeforeEach
+    void setUp() {
+        Instant now = Instant.now();
+        OLD.forEach(id -> insert(id, now.minus(Duration.ofDays(100))));
+        YOUNG.forEach(id -> insert(id, now.minus(Duration.ofDays(1))));
+        rollups = new FailingRollups(rollupRepository, dataSource, transactionManager, entityManagerFactory);
+        job = new GeneralTestingRetentionJob(generalTestingRepository, archiveRepository, rollups, transactionManager,
+            new SimpleMeterRegistry(), Duration.ofDays(90), 2, 0, Duration.ZERO, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM general_testing WHERE id LIKE 'RET-%'");
+        jdbcTemplate.update("DELETE FROM general_testing_archive WHERE id LIKE 'RET-%'");
+    }
+
+    @Test
+    void testRowsOlderThanMaxAgeAreMoved() {
+        assertThat(job.run()).isEqualTo(5);
+
+        assertThat(sourceIds()).containsExactlyElementsOf(YOUNG);
+        assertThat(archivedIds()).containsExactlyElementsOf(OLD);
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT email_from FROM general_testing_archive WHERE id = 'RET-OLD-3'", String.class))
+            .isEqualTo("from-RET-OLD-3");
+    }
+
+    @Test
+    void testRerunAfterFailedChunkNeitherDuplicatesNorLosesRows() {
+        rollups.failOnCall = 2;
+        assertThatThrownBy(job::run).isInstanceOf(IllegalStateException.class);
+
+        // the first chunk is moved, the second rolled back as a whole
+        assertThat(archivedIds()).containsExactly("RET-OLD-1", "RET-OLD-2");
+        assertThat(sourceIds()).containsExactly("RET-OLD-3", "RET-OLD-4", "RET-OLD-5", "RET-YOUNG-1", "RET-YOUNG-2");
+
+        rollups.failOnCall = 0;
+        assertThat(job.run()).isEqualTo(3);
+
+        assertThat(sourceIds()).containsExactlyElementsOf(YOUNG);
+        assertThat(archivedIds()).containsExactlyElementsOf(OLD);
+    }
+
+    private void insert(String id, Instant created) {
+        jdbcTemplate.update("""
+                INSERT INTO general_testing (id, type, email_from, email_to, create_by, create_date, update_date)
+                VALUES (?, 1, ?, 'to@example.com', 'TEST', ?, ?)""",
+            id, "from-" + id, Timestamp.from(created), Timestamp.from(created));
+    }
+
+    private List<String> sourceIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM general_testing WHERE id LIKE 'RET-%' ORDER BY id", String.class);
+    }
+
+    private List<String> archivedIds() {
+        return jdbcTemplate.queryForList(
+            "SELECT id FROM general_testing_archive WHERE id LIKE 'RET-%' ORDER BY id", String.class);
+    }
+
+    /**
+     * Throws on the {@code failOnCall}-th report of deleted rows, i.e. inside that chunk's transaction.
+     */
+    private static class FailingRollups extends GeneralTestingStatusRollups {
+
+        private int failOnCall;
+        private int calls;
+
+        FailingRollups(GeneralTestingStatusRollupRepository rollupRepository, DataSource dataSource,
+                       PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+            super(rollupRepository, dataSource, transactionManager, entityManagerFactory, "");
+        }
+
+        @Override
+        public void rowsDeletedInBulk(List<Object[]> keys) {
+            if (++calls == failOnCall) {
+                throw new IllegalStateException("Failing chunk " + calls);
+            }
+            super.rowsDeletedInBulk(keys);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package dev.annopud.jpa_demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.annopud.jpa_demo.converter.PayloadCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(GeneralTestingSparseFinder.class)
+class GeneralTestingSparseFinderTest {
+
+    private static final byte[] PAYLOAD = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private GeneralTestingSparseFinder finder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        new JdbcTemplate(dataSource).update("""
+                INSERT INTO general_testing (id, type, email_from, email_to, email_status, create_by, create_date,
+                    update_date, email_submit_param, email_error)
+                VALUES ('SPARSE1', 1, 'from@example.com', 'to@example.com', 'E', 'test', ?, ?, ?, 'bounced')""",
+            now, now, PayloadCodec.encode(PAYLOAD));
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM general_testing");
+    }
+
+    @Test
+    void testOnlyRequestedFieldsAreSerialised() {
+        List<GeneralTestingSparseRow> rows = finder.findAll(GeneralTestingFieldSet.parse("emailStatus,emailSubmitParam"));
+
+        JsonNode json = objectMapper.valueToTree(rows);
+        assertThat(json).hasSize(1);
+        JsonNode row = json.get(0);
+        assertThat(row.fieldNames()).toIterable().containsExactly("id", "emailStatus", "emailSubmitParam");
+        assertThat(row.get("id").asText()).isEqualTo("SPARSE1");
+        assertThat(row.get("emailStatus").asText()).isEqualTo("E");
+        assertThat(row.get("emailSubmitParam").asText()).isEqualTo(Base64.getEncoder().encodeToString(PAYLOAD));
+    }
+
+    @Test
+    void testDefaultFieldsLeaveOutLargeColumns() {
+        List<GeneralTestingSparseRow> rows = finder.findAll(GeneralTestingFieldSet.DEFAULT);
+
+        JsonNode row = objectMapper.valueToTree(rows).get(0);
+        assertThat(row.has("emailFrom")).isTrue();
+        assertThat(row.has("createDate")).isTrue();
+        assertThat(row.has("emailSubmitParam")).isFalse();
+        assertThat(row.has("emailError")).isFalse();
+    }
+}
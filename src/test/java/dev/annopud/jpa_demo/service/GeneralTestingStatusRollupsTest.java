@@ -0,0 +1,128 @@
+package dev.annopud.jpa_demo.service;
+
+import dev.annopud.jpa_demo.entity.EmailStatus;
+import dev.annopud.jpa_demo.entity.GeneralTesting;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the {@code h2} profile (MySQL mode) for the {@code ON DUPLICATE KEY UPDATE} upsert, outside a test
+ * transaction so that flushes commit.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(GeneralTestingStatusRollups.class)
+class GeneralTestingStatusRollupsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 10, 15);
+
+    @Autowired
+    private GeneralTestingStatusRollups rollups;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM general_testing WHERE id LIKE 'ROLLUP-%'");
+        rollups.rebuild();
+    }
+
+    @Test
+    void testPendingDeltasAreVisibleBeforeAndAfterFlush() {
+        rollups.rowsDeletedInBulk(List.of(
+            key(EmailStatus.SUCCESS, 1, DAY),
+            key(EmailStatus.SUCCESS, 1, DAY),
+            key(null, 2, null)));
+
+        List<GeneralTestingStatusRollups.StatusCount> expected = List.of(
+            new GeneralTestingStatusRollups.StatusCount(LocalDate.of(1000, 1, 1), "", 2, -1),
+            new GeneralTestingStatusRollups.StatusCount(DAY, "S", 1, -2));
+        assertThat(rollups.stats(LocalDate.of(1000, 1, 1), DAY)).isEqualTo(expected);
+
+        rollups.flush();
+        assertThat(rollups.stats(LocalDate.of(1000, 1, 1), DAY)).isEqualTo(expected);
+
+        rollups.rowsDeletedInBulk(List.<Object[]>of(key(EmailStatus.SUCCESS, 1, DAY)));
+        rollups.flush();
+        assertThat(rollups.stats(DAY, DAY))
+            .containsExactly(new GeneralTestingStatusRollups.StatusCount(DAY, "S", 1, -3));
+    }
+
+    @Test
+    void testDeleteCountsTheRowAsItWasStored() {
+        Date emailDate = Date.from(DAY.atTime(10, 30).atZone(ZoneId.systemDefault()).toInstant());
+        jdbcTemplate.update("""
+                INSERT INTO general_testing (id, type, email_from, email_to, email_status, email_date, create_by,
+                    create_date, update_date)
+                VALUES ('ROLLUP-1', 1, 'from@example.com', 'to@example.com', 'S', ?, 'TEST', ?, ?)""",
+            emailDate, emailDate, emailDate);
+        rollups.rebuild();
+
+        // changed and removed in the same transaction, the change is never written
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            GeneralTesting row = entityManager.find(GeneralTesting.class, "ROLLUP-1");
+            row.setEmailStatus(EmailStatus.ERROR);
+            row.setType(2);
+            entityManager.remove(row);
+        });
+
+        // the stored (S, 1) count drops back to zero, nothing is taken from (E, 2)
+        assertThat(rollups.stats(DAY, DAY)).isEmpty();
+    }
+
+    @Test
+    void testRebuildRecomputesFromTable() {
+        rollups.rowsDeletedInBulk(List.<Object[]>of(key(EmailStatus.ERROR, 1, DAY)));
+        rollups.flush();
+
+        rollups.rebuild();
+
+        assertThat(rollups.stats(LocalDate.of(1000, 1, 1), LocalDate.of(9999, 12, 31))).isEmpty();
+    }
+
+    @Test
+    void testDayIsTakenInTheConfiguredZone() {
+        Date lateEvening = Date.from(Instant.parse("2025-10-15T18:30:00Z"));
+
+        assertThat(GeneralTestingStatusRollups.keyOf(EmailStatus.SUCCESS, 1, lateEvening, ZoneOffset.UTC).getEmailDay())
+            .isEqualTo(DAY);
+        assertThat(GeneralTestingStatusRollups.keyOf(EmailStatus.SUCCESS, 1, lateEvening, ZoneId.of("Asia/Bangkok"))
+            .getEmailDay())
+            .isEqualTo(DAY.plusDays(1));
+    }
+
+    private static Object[] key(EmailStatus status, Integer type, LocalDate day) {
+        Date date = day != null ? Date.from(day.atTime(10, 30).atZone(ZoneId.systemDefault()).toInstant()) : null;
+        return new Object[]{status, type, date};
+    }
+}
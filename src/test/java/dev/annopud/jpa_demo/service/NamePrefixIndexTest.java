@@ -0,0 +1,83 @@
+package dev.annopud.jpa_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NamePrefixIndexTest {
+
+    @Test
+    void testSuggestIgnoresCaseAndIsBounded() {
+        NamePrefixIndex index = new NamePrefixIndex(100);
+        index.rebuild(List.of("Bauer", "bauer", "Baker", "Brown", "Dessler", "Palmer", "Barnes"));
+
+        assertThat(index.suggest("ba", 10)).containsExactly("Baker", "Barnes", "Bauer");
+        assertThat(index.suggest("BA", 2)).containsExactly("Baker", "Barnes");
+        assertThat(index.suggest("x", 10)).isEmpty();
+    }
+
+    @Test
+    void testPendingChangesAreMergedWithCompactedNames() {
+        NamePrefixIndex index = new NamePrefixIndex(100);
+        index.rebuild(List.of("Bauer", "Baker"));
+
+        index.add("Bane");
+        index.remove("Baker");
+        index.add("Bauer");
+        index.remove("Bauer");
+
+        assertThat(index.suggest("Ba", 10)).containsExactly("Bane", "Bauer");
+    }
+
+    @Test
+    void testCompactionKeepsCounts() {
+        NamePrefixIndex index = new NamePrefixIndex(2);
+        index.rebuild(List.of("Bauer", "Bauer"));
+
+        index.remove("Bauer");
+        index.add("Baker");
+        index.add("Bane");
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.suggest("Ba", 10)).containsExactly("Baker", "Bane", "Bauer");
+        index.remove("Bauer");
+        assertThat(index.suggest("Ba", 10)).containsExactly("Baker", "Bane");
+    }
+
+    @Test
+    void testChangesDuringRebuildAreReplayed() {
+        NamePrefixIndex index = new NamePrefixIndex(2);
+        index.rebuild(List.of("Bauer", "Baker"));
+
+        NamePrefixIndex.Rebuild rebuild = index.startRebuild();
+        rebuild.add("Bauer");
+        rebuild.add("Baker");
+        // committed after the source was read: the old names see them at once, the new ones after finish
+        index.add("Bane");
+        index.remove("Baker");
+        index.add("Barnes");
+        assertThat(index.suggest("Ba", 10)).containsExactly("Bane", "Barnes", "Bauer");
+        rebuild.finish();
+
+        assertThat(index.suggest("Ba", 10)).containsExactly("Bane", "Barnes", "Bauer");
+        index.remove("Bane");
+        assertThat(index.suggest("Ba", 10)).containsExactly("Barnes", "Bauer");
+    }
+
+    @Test
+    void testAbandonedRebuildKeepsNamesAndStopsRecording() {
+        NamePrefixIndex index = new NamePrefixIndex(100);
+        index.rebuild(List.of("Bauer"));
+
+        try (NamePrefixIndex.Rebuild rebuild = index.startRebuild()) {
+            rebuild.add("Palmer");
+            index.add("Baker");
+        }
+
+        assertThat(index.suggest("", 10)).containsExactly("Baker", "Bauer");
+        index.rebuild(List.of("Dessler"));
+        assertThat(index.suggest("", 10)).containsExactly("Dessler");
+    }
+}
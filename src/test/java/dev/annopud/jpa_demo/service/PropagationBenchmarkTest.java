@@ -0,0 +1,106 @@
+package dev.annopud.jpa_demo.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dev.annopud.jpa_demo.datasource.PoolDeadlockDetector;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and connection usage of the REQUIRED, REQUIRES_NEW and NESTED scenarios of
+ * {@link TransactionDemoService} at increasing concurrency, on virtual threads against a pool of 10.
+ * <p>
+ * Once concurrency exceeds the pool size the REQUIRES_NEW scenario starts timing out: every outer transaction
+ * holds a connection and waits for a second one. The detector counters show how often that was predicted.
+ * <pre>
+ * ./mvnw test -Dtest=PropagationBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.hikari.maximum-pool-size=10",
+    "spring.datasource.hikari.connection-timeout=2000",
+    "jpa-demo.pool-deadlock-detector.mode=WARN"
+})
+@ActiveProfiles("h2")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PropagationBenchmarkTest {
+
+    private static final int OPERATIONS_PER_THREAD = 50;
+
+    @Autowired
+    private TransactionDemoService service;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 10, 20, 50})
+    void propagationModes(int concurrency) throws Exception {
+        Map<String, Runnable> scenarios = new LinkedHashMap<>();
+        scenarios.put("REQUIRED", service::requiredRequiredCatch);
+        scenarios.put("REQUIRES_NEW", service::requiredRequiresNewCatch);
+        scenarios.put("NESTED", service::requiredNestedCatch);
+
+        PoolDeadlockDetector detector = dataSource.unwrap(PoolDeadlockDetector.class);
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+
+        for (Map.Entry<String, Runnable> scenario : scenarios.entrySet()) {
+            Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 3);
+            LongAdder errors = new LongAdder();
+            AtomicInteger maxActive = new AtomicInteger();
+            long acquisitions = detector.getAcquisitions();
+            long nested = detector.getNestedAcquisitions();
+            long exhausted = detector.getNestedOnExhaustedPool();
+
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int t = 0; t < concurrency; t++) {
+                    executor.execute(() -> {
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            long opStart = System.nanoTime();
+                            try {
+                                scenario.getValue().run();
+                            } catch (RuntimeException e) {
+                                errors.increment();
+                            }
+                            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - opStart);
+                            recorder.recordValue(Math.max(1, micros));
+                            maxActive.accumulateAndGet(pool.getActiveConnections(), Math::max);
+                        }
+                    });
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            int operations = concurrency * OPERATIONS_PER_THREAD;
+            Histogram latency = recorder.getIntervalHistogram();
+            System.out.printf("%-12s c=%-3d %7.0f ops/s p50=%.2fms p99=%.2fms max=%.2fms errors=%d"
+                    + " connections/op=%.2f nested/op=%.2f nestedOnExhaustedPool=%d maxActive=%d%n",
+                scenario.getKey(), concurrency,
+                operations / (elapsed / 1_000_000_000.0),
+                latency.getValueAtPercentile(50) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0,
+                latency.getMaxValue() / 1000.0,
+                errors.sum(),
+                (detector.getAcquisitions() - acquisitions) / (double) operations,
+                (detector.getNestedAcquisitions() - nested) / (double) operations,
+                detector.getNestedOnExhaustedPool() - exhausted,
+                maxActive.get());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.annopud.jpa_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<Long, StringBuilder> flight = new SingleFlight<>(StringBuilder::new);
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<StringBuilder>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10; i++) {
+                results.add(executor.submit(() -> flight.load(1L, () -> {
+                    loaderCalls.incrementAndGet();
+                    await(release);
+                    return new StringBuilder("customer-1");
+                })));
+            }
+            while (flight.getLoads() + flight.getMerged() < 10) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+        }
+
+        assertThat(loaderCalls).hasValue(1);
+        assertThat(flight.getMerged()).isEqualTo(9);
+        for (Future<StringBuilder> result : results) {
+            assertThat(result.get()).hasToString("customer-1");
+        }
+        // every caller gets its own copy
+        assertThat(results.stream().map(this::get).distinct()).hasSize(10);
+    }
+
+    @Test
+    void testFailureIsSharedAndNotCached() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(s -> s);
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("db down");
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10; i++) {
+                results.add(executor.submit(() -> flight.load(1L, () -> {
+                    loaderCalls.incrementAndGet();
+                    await(release);
+                    throw failure;
+                })));
+            }
+            while (flight.getLoads() + flight.getMerged() < 10) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+        }
+
+        assertThat(loaderCalls).hasValue(1);
+        assertThat(flight.getMerged()).isEqualTo(9);
+        for (Future<String> result : results) {
+            assertThatThrownBy(result::get).isInstanceOf(ExecutionException.class).cause().isSameAs(failure);
+        }
+
+        // the failure is not remembered: the next caller loads again
+        assertThat(flight.load(1L, () -> "ok")).isEqualTo("ok");
+        assertThat(flight.getLoads()).isEqualTo(2);
+    }
+
+    private StringBuilder get(Future<StringBuilder> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package dev.annopud.jpa_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionDemoServiceTest {
+
+    @Test
+    void testClearChunkSizeMustBePositive() {
+        assertThatThrownBy(() -> new TransactionDemoService(null, null, null, TransactionDemoService.ClearMode.CHUNKED, 0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("clear-chunk-size");
+    }
+}
@@ -0,0 +1,62 @@
+package dev.annopud.jpa_demo.warmup;
+
+import dev.annopud.jpa_demo.service.GeneralTestingSparseFinder;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ApplicationWarmup.class, WarmupStatementRecorder.class, GeneralTestingSparseFinder.class})
+@TestPropertySource(properties = "jpa-demo.warmup.iterations=5")
+class ApplicationWarmupTest {
+
+    @Autowired
+    private ApplicationWarmup warmup;
+
+    @Test
+    void testEveryCallRunsAndItsStatementsArePrepared() {
+        warmup.run(null);
+
+        WarmupReport report = warmup.getReport();
+        assertThat(report.iterations()).isEqualTo(5);
+        assertThat(report.connections()).isPositive();
+        assertThat(report.statements()).isGreaterThanOrEqualTo(14);
+        assertThat(report.coldLatency())
+            .containsKeys("CustomerRepository.findByLastName", "CustomerRepository.findByIdNative",
+                "CustomerRepository.findByIdForUpdate", "GeneralTestingRepository.findChangedAfter",
+                "TxDemoRecordRepository.findAllTags", "TxDemoRecordRepository.findIds", "GeneralTestingSparseFinder.findFirst",
+                "json GeneralTesting")
+            .hasSize(23);
+        assertThat(report.warmLatency()).containsOnlyKeys(report.coldLatency().keySet());
+    }
+
+    @Nested
+    @TestPropertySource(properties = "jpa-demo.export.file=target/warmup-test-export.ndjson")
+    class DuringExport {
+
+        @Autowired
+        private ApplicationWarmup warmup;
+
+        @Test
+        void testNothingIsWarmedUp() {
+            warmup.run(null);
+
+            assertThat(warmup.getReport()).isNull();
+        }
+    }
+}